@@ -0,0 +1,469 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  AsymmetricPathfinder.java
+//
+//  This class is the asymmetric (ATSP) mode of the route
+//  planner. The cost of a leg comes from a WindCostMatrix,
+//  so flying A to B may cost more or less than B to A, and
+//  the direction a tour is flown matters. Like
+//  DronePathfinder, it starts at the hotspot closest to the
+//  terminal, never uses a leg that hits an obstacle except
+//  the closing leg back to the start, and never uses a leg
+//  the wind makes unflyable.
+//
+//  The tour is built by a Greedy Nearest Neighbor walk on
+//  the matrix. Hotspots the walk is cut off from are then
+//  inserted wherever they cost least. Finally the tour is
+//  improved by Or-opt, which moves runs of one to three
+//  hotspots to a better place in the tour without reversing
+//  them. 2-opt is not used since it reverses part of the
+//  tour, which changes its cost when costs are asymmetric.
+//  For each run, only the positions after its few cheapest
+//  predecessors are tried. Last, the tour is flown backwards
+//  if that is cheaper. Reversing moves the closing leg to
+//  the front, where it must clear every obstacle, so the
+//  hotspots it would cut off from the start are first moved
+//  to the end of the tour or reinserted elsewhere.
+//
+//  Usage: java AsymmetricPathfinder [hotspots] [seed]
+//************************************************************
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Plans routes over asymmetric, wind-dependent leg costs.
+ */
+public final class AsymmetricPathfinder {
+
+    // Cheapest predecessors of each hotspot tried by Or-opt
+    private static final int NEIGHBORS = 10;
+    // Longest run of hotspots moved by Or-opt
+    private static final int MAX_RUN = 3;
+    // Limit on Or-opt passes over the tour
+    private static final int MAX_PASSES = 50;
+
+    private final WindCostMatrix costs;
+    private final int n;
+    // Tour as hotspot indices and the position of each hotspot in it
+    private int[] order;
+    private int[] position;
+    private int size;
+    // Cheapest predecessors of each hotspot, NEIGHBORS per hotspot
+    private int[] neighbors;
+
+    private AsymmetricPathfinder(WindCostMatrix costs) {
+        this.costs = costs;
+        this.n = costs.size();
+    }
+
+    /**
+     * Plans a tour over every hotspot of a cost matrix.
+     *
+     * @param costs Leg costs between the hotspots to visit.
+     * @return Tour over costs.getHotspots(), starting at the hotspot
+     *         closest to the terminal.
+     */
+    public static Tour planTour(WindCostMatrix costs) {
+        AsymmetricPathfinder planner = new AsymmetricPathfinder(costs);
+        if (planner.n == 0) {
+            return new Tour(costs.getHotspots(), new int[0]);
+        }
+        planner.construct();
+        planner.insertUnreachable();
+        planner.improve();
+        planner.chooseDirection();
+        return new Tour(costs.getHotspots(), Arrays.copyOf(planner.order, planner.size));
+    }
+
+    /**
+     * Plans a tour over all HOTSPOT nodes in a wind field, with the default
+     * airspeed and obstacles.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @param wind Wind field the legs are flown in.
+     * @return Tour over the HOTSPOT nodes, starting at the hotspot closest
+     *         to the terminal.
+     */
+    public static Tour planTour(List<GeoNode> allNodes, WindField wind) {
+        List<GeoNode> hotspots = new ArrayList<>();
+        for (GeoNode node : allNodes) {
+            if (node.getZone() == ZoneType.HOTSPOT) {
+                hotspots.add(node);
+            }
+        }
+        return planTour(new WindCostMatrix(hotspots, wind));
+    }
+
+    /**
+     * Checks if a leg may be added to the tour. Only the closing leg back
+     * to the start may hit an obstacle.
+     */
+    private boolean allowed(int from, int to) {
+        return costs.cost(from, to) < Double.POSITIVE_INFINITY
+                && (to == order[0] || !costs.isBlocked(from, to));
+    }
+
+    /**
+     * Greedy Nearest Neighbor walk from the hotspot closest to the
+     * terminal.
+     */
+    private void construct() {
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        order = new int[n];
+        position = new int[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = costs.latitude(i);
+            lon[i] = costs.longitude(i);
+            order[i] = i;
+        }
+        int start = DronePathfinder.closestToTerminal(lat, lon, order, 0, n);
+        order[start] = 0;
+        order[0] = start;
+
+        size = 1;
+        while (size < n) {
+            int current = order[size - 1];
+            int nearest = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int k = size; k < n; k++) {
+                double cost = costs.cost(current, order[k]);
+                if (cost < best && !costs.isBlocked(current, order[k])) {
+                    best = cost;
+                    nearest = k;
+                }
+            }
+            if (nearest < 0) {
+                break; // Exit if trapped
+            }
+            int swap = order[size];
+            order[size] = order[nearest];
+            order[nearest] = swap;
+            size++;
+        }
+        for (int k = 0; k < n; k++) {
+            position[order[k]] = k;
+        }
+    }
+
+    /**
+     * Inserts each hotspot the walk could not reach at its cheapest
+     * allowed position, if it has one.
+     */
+    private void insertUnreachable() {
+        int end = n;
+        while (size < end) {
+            int node = order[size];
+            int bestAfter = -1;
+            double bestDelta = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < size; k++) {
+                int a = order[k];
+                int b = order[(k + 1) % size];
+                if (allowed(a, node) && allowed(node, b)) {
+                    double delta = costs.cost(a, node) + costs.cost(node, b) - (size > 1 ? costs.cost(a, b) : 0);
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestAfter = k;
+                    }
+                }
+            }
+            if (bestAfter < 0) {
+                // Leave it unreachable, after the tour
+                end--;
+                order[size] = order[end];
+                order[end] = node;
+                continue;
+            }
+            System.arraycopy(order, bestAfter + 1, order, bestAfter + 2, size - bestAfter - 1);
+            order[bestAfter + 1] = node;
+            size++;
+        }
+        for (int k = 0; k < n; k++) {
+            position[order[k]] = k;
+        }
+    }
+
+    /**
+     * Or-opt: moves runs of hotspots to cheaper places in the tour until no
+     * move helps or the pass limit is reached.
+     */
+    private void improve() {
+        if (size < 4) {
+            return;
+        }
+        if (neighbors == null) {
+            findNeighbors();
+        }
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_PASSES; pass++) {
+            improved = false;
+            for (int run = 1; run <= MAX_RUN; run++) {
+                // The start stays at position 0
+                for (int first = 1; first + run <= size; first++) {
+                    if (tryMove(first, run)) {
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flies the tour backwards from the same start if that costs less once
+     * the reversed tour is improved again, and every leg of it is allowed.
+     */
+    private void chooseDirection() {
+        if (size < 3) {
+            return;
+        }
+        int[] best = Arrays.copyOf(order, size);
+        double bestCost = cycleCost(order);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int[] reversed = reversedOrder(attempt == 0);
+            if (reversed == null || cycleCost(reversed) == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            System.arraycopy(reversed, 0, order, 0, size);
+            updatePositions(0, size - 1);
+            improve();
+            double cost = cycleCost(order);
+            if (cost < bestCost) {
+                best = Arrays.copyOf(order, size);
+                bestCost = cost;
+            }
+        }
+        System.arraycopy(best, 0, order, 0, size);
+        updatePositions(0, size - 1);
+    }
+
+    /**
+     * Returns the tour flown backwards from the same start. The old
+     * closing leg becomes the first leg and loses its exemption, so the
+     * hotspots it would cut off from the start are either moved as a
+     * block to the end of the tour or reinserted one by one at their
+     * cheapest allowed places.
+     *
+     * @param asBlock True to move the cut-off hotspots to the end.
+     * @return The reversed order, or null if the cut-off hotspots cannot
+     *         be placed.
+     */
+    private int[] reversedOrder(boolean asBlock) {
+        int[] reversed = new int[size];
+        reversed[0] = order[0];
+        for (int k = 1; k < size; k++) {
+            reversed[k] = order[size - k];
+        }
+        int cut = 1;
+        while (cut < size && !allowed(reversed[0], reversed[cut])) {
+            cut++;
+        }
+        if (cut == size) {
+            return null;
+        }
+        int[] moved = Arrays.copyOfRange(reversed, 1, cut);
+        System.arraycopy(reversed, cut, reversed, 1, size - cut);
+        int length = size - moved.length;
+        if (asBlock) {
+            System.arraycopy(moved, 0, reversed, length, moved.length);
+            return reversed;
+        }
+        for (int m = moved.length - 1; m >= 0; m--) {
+            int node = moved[m];
+            int bestAfter = -1;
+            double bestDelta = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < length; k++) {
+                int a = reversed[k];
+                int b = reversed[(k + 1) % length];
+                if (allowed(a, node) && allowed(node, b)) {
+                    double delta = costs.cost(a, node) + costs.cost(node, b) - costs.cost(a, b);
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestAfter = k;
+                    }
+                }
+            }
+            if (bestAfter < 0) {
+                return null;
+            }
+            System.arraycopy(reversed, bestAfter + 1, reversed, bestAfter + 2, length - bestAfter - 1);
+            reversed[bestAfter + 1] = node;
+            length++;
+        }
+        return reversed;
+    }
+
+    /**
+     * Returns the cost of flying a tour of the current size, starting at
+     * order[0].
+     *
+     * @return Seconds, or infinity if any leg is not allowed.
+     */
+    private double cycleCost(int[] tour) {
+        double total = 0;
+        for (int k = 0; k < size; k++) {
+            int a = tour[k];
+            int b = tour[(k + 1) % size];
+            if (!allowed(a, b)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            total += costs.cost(a, b);
+        }
+        return total;
+    }
+
+    /**
+     * Tries to move the run order[first, first + run) after one of the
+     * cheapest predecessors of its first hotspot.
+     *
+     * @return True if the run was moved.
+     */
+    private boolean tryMove(int first, int run) {
+        int last = first + run - 1;
+        int runFirst = order[first];
+        int runLast = order[last];
+        int prev = order[first - 1];
+        int next = order[(last + 1) % size];
+        if (!allowed(prev, next)) {
+            return false;
+        }
+        double removed = costs.cost(prev, runFirst) + costs.cost(runLast, next) - costs.cost(prev, next);
+
+        int bestAfter = -1;
+        double bestDelta = -1e-9;
+        for (int k = 0; k < NEIGHBORS; k++) {
+            int a = neighbors[runFirst * NEIGHBORS + k];
+            if (a < 0) {
+                break;
+            }
+            int at = position[a];
+            if (at >= size || (at >= first - 1 && at <= last)) {
+                continue; // Unreachable, or the run would stay where it is
+            }
+            int b = order[(at + 1) % size];
+            if (!allowed(a, runFirst) || !allowed(runLast, b)) {
+                continue;
+            }
+            double delta = costs.cost(a, runFirst) + costs.cost(runLast, b) - costs.cost(a, b) - removed;
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestAfter = at;
+            }
+        }
+        if (bestAfter < 0) {
+            return false;
+        }
+
+        // Shift the hotspots between the run and its new place over the run
+        int[] moving = Arrays.copyOfRange(order, first, first + run);
+        if (bestAfter < first) {
+            System.arraycopy(order, bestAfter + 1, order, bestAfter + 1 + run, first - bestAfter - 1);
+            System.arraycopy(moving, 0, order, bestAfter + 1, run);
+            updatePositions(bestAfter + 1, last);
+        } else {
+            System.arraycopy(order, last + 1, order, first, bestAfter - last);
+            System.arraycopy(moving, 0, order, bestAfter - run + 1, run);
+            updatePositions(first, bestAfter);
+        }
+        return true;
+    }
+
+    private void updatePositions(int from, int to) {
+        for (int k = from; k <= to; k++) {
+            position[order[k]] = k;
+        }
+    }
+
+    /**
+     * Finds the cheapest allowed predecessors of every hotspot, in
+     * parallel.
+     */
+    private void findNeighbors() {
+        neighbors = new int[n * NEIGHBORS];
+        Arrays.fill(neighbors, -1);
+        IntStream.range(0, n).parallel().forEach(j -> {
+            // Small sorted insertion list of the cheapest legs into j
+            double[] best = new double[NEIGHBORS];
+            Arrays.fill(best, Double.POSITIVE_INFINITY);
+            for (int i = 0; i < n; i++) {
+                double cost = costs.cost(i, j);
+                if (i == j || costs.isBlocked(i, j) || cost >= best[NEIGHBORS - 1]) {
+                    continue;
+                }
+                int p = NEIGHBORS - 1;
+                while (p > 0 && best[p - 1] > cost) {
+                    best[p] = best[p - 1];
+                    neighbors[j * NEIGHBORS + p] = neighbors[j * NEIGHBORS + p - 1];
+                    p--;
+                }
+                best[p] = cost;
+                neighbors[j * NEIGHBORS + p] = i;
+            }
+        });
+    }
+
+    /**
+     * Plans a generated scenario in a steady westerly wind, then re-costs
+     * and re-plans it after the wind backs to the south, printing the
+     * timings and how much flying the tour backwards or ignoring the wind
+     * would cost.
+     *
+     * @param args Optional hotspot count and seed.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        List<GeoNode> hotspots = ScenarioGenerator.demoHotspots(count, seed);
+
+        long start = System.nanoTime();
+        WindCostMatrix costs = new WindCostMatrix(hotspots, steadyWind(9, 0));
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+        report("westerly 9 m/s", costs, buildSeconds, hotspots);
+
+        start = System.nanoTime();
+        costs.recost(steadyWind(0, 9));
+        double recostSeconds = (System.nanoTime() - start) / 1e9;
+        report("southerly 9 m/s", costs, recostSeconds, hotspots);
+    }
+
+    /**
+     * Wind blowing towards (u, v) m/s over the property, strengthening
+     * by half from the south edge to the north edge.
+     */
+    private static WindField steadyWind(double u, double v) {
+        int rows = 8;
+        int columns = 16;
+        double[] eastward = new double[rows * columns];
+        double[] northward = new double[rows * columns];
+        for (int r = 0; r < rows; r++) {
+            double shear = 1 + 0.5 * r / (rows - 1);
+            for (int c = 0; c < columns; c++) {
+                eastward[r * columns + c] = u * shear;
+                northward[r * columns + c] = v * shear;
+            }
+        }
+        return new WindField(40.4870, -80.2460, 40.4945, -80.2290, rows, columns, eastward, northward);
+    }
+
+    private static void report(String label, WindCostMatrix costs, double costSeconds, List<GeoNode> hotspots) {
+        long start = System.nanoTime();
+        Tour tour = planTour(costs);
+        double planSeconds = (System.nanoTime() - start) / 1e9;
+
+        // The same tour flown backwards, keeping the start, whether or not
+        // its legs are allowed
+        int[] reversed = new int[tour.size()];
+        for (int k = 0; k < reversed.length; k++) {
+            reversed[k] = tour.indexAt((reversed.length - k) % reversed.length);
+        }
+        double backwards = costs.tourCost(new Tour(costs.getHotspots(), reversed));
+        // The symmetric greedy tour, flown in this wind
+        double symmetric = costs.tourCost(DronePathfinder.planTour(hotspots));
+
+        System.out.printf("%s: costs %.3fs, plan %.3fs, %d of %d hotspots%n",
+                label, costSeconds, planSeconds, tour.size(), costs.size());
+        System.out.printf("  flight time %.0fs, backwards %.0fs, symmetric greedy %.0fs%n",
+                costs.tourCost(tour), backwards, symmetric);
+    }
+}
@@ -0,0 +1,670 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  ContractionHierarchy.java
+//
+//  This class answers point-to-point shortest-path queries
+//  over the GeoEdge network of a GraphSnapshot using
+//  contraction hierarchies. Construction is the preprocessing
+//  phase: nodes are contracted one at a time in order of
+//  importance (twice the edge difference, plus contracted
+//  neighbours and level), and a shortcut u->x is added
+//  whenever removing v would otherwise lengthen the shortest
+//  u->x path. The remaining graph is kept in per-node
+//  primitive arc arrays, and a contracted node's own arrays
+//  become its arcs in the hierarchy. Afterwards a query is a
+//  bidirectional Dijkstra search that only ever moves
+//  "upward" to more important nodes, with stall-on-demand,
+//  which settles a few hundred nodes instead of the whole
+//  graph.
+//
+//  Edge weights are the integer weights of calculateWeight()
+//  in GeoEdge.java as of the snapshot. Edges weighted
+//  Integer.MAX_VALUE (TERMINAL and PROPERTY_LINE) are
+//  impassable and are left out of the hierarchy entirely,
+//  and all path costs are summed in longs, so no query can
+//  overflow. Weights changed later by overrideWeight() are
+//  not seen until a new hierarchy is built.
+//
+//  The hierarchy is immutable once built. Each querying
+//  thread gets its own search workspace, so one instance can
+//  serve any number of dispatch threads.
+//************************************************************
+
+import java.util.*;
+
+/**
+ * Contraction-hierarchy shortest-path engine over the GeoNode/GeoEdge
+ * graph. Preprocesses once in the constructor, then answers distance and
+ * path queries with a bidirectional upward search.
+ */
+public final class ContractionHierarchy {
+
+    /** Distance returned when no passable path exists. */
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    // Maximum nodes settled by a witness search while estimating a
+    // node's priority, and while actually contracting it. A search that
+    // gives up early only adds a shortcut that was not strictly needed
+    private static final int ESTIMATE_SETTLE_LIMIT = 20;
+    private static final int CONTRACT_SETTLE_LIMIT = 500;
+
+    private final List<GeoNode> nodes;
+    private final Map<GeoNode, Integer> indexByNode = new IdentityHashMap<>();
+    // Contraction order; higher rank means contracted later
+    private final int[] rank;
+    private final int shortcutCount;
+
+    // Upward arcs u->x (rank[x] > rank[u]) in compressed adjacency form.
+    // The middle arrays hold the node a shortcut bypasses, or -1 for an
+    // original edge
+    private final int[] upFirst;
+    private final int[] upTarget;
+    private final long[] upWeight;
+    private final int[] upMiddle;
+    // Reversed downward arcs: for an arc x->u with rank[x] > rank[u],
+    // stored at u pointing to x, used by the backward search
+    private final int[] downFirst;
+    private final int[] downTarget;
+    private final long[] downWeight;
+    private final int[] downMiddle;
+
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * Per-thread query state, reset lazily with a query stamp so that a
+     * query only touches the nodes it visits.
+     */
+    private static final class Workspace {
+        final long[] forwardDist;
+        final long[] backwardDist;
+        final int[] forwardParent;
+        final int[] backwardParent;
+        final int[] forwardStamp;
+        final int[] backwardStamp;
+        final LongIntMinHeap forwardHeap = new LongIntMinHeap(64);
+        final LongIntMinHeap backwardHeap = new LongIntMinHeap(64);
+        int stamp;
+
+        Workspace(int n) {
+            forwardDist = new long[n];
+            backwardDist = new long[n];
+            forwardParent = new int[n];
+            backwardParent = new int[n];
+            forwardStamp = new int[n];
+            backwardStamp = new int[n];
+        }
+    }
+
+    /**
+     * Builds the hierarchy for all nodes and edges of a snapshot.
+     *
+     * @param snapshot Pinned version of the graph to preprocess.
+     */
+    public ContractionHierarchy(GraphSnapshot snapshot) {
+        this.nodes = snapshot.getNodes();
+        int n = nodes.size();
+        for (int i = 0; i < n; i++) {
+            indexByNode.put(nodes.get(i), i);
+        }
+
+        ArcLists out = new ArcLists(n);
+        ArcLists in = new ArcLists(n);
+        for (int i = 0; i < n; i++) {
+            for (GeoEdge edge : snapshot.getEdges(nodes.get(i))) {
+                Integer to = indexByNode.get(edge.getTarget());
+                // Impassable edges never take part in a shortest path
+                if (to == null || to == i || edge.getWeight() == Integer.MAX_VALUE) {
+                    continue;
+                }
+                addArc(out, in, i, to, edge.getWeight(), -1);
+            }
+        }
+        int originalArcs = out.total();
+
+        this.rank = contractAll(out, in);
+        this.shortcutCount = out.total() + in.total() - originalArcs;
+
+        // Contraction froze the arc lists of every node: its outgoing arcs
+        // all lead upward and its incoming arcs all come from above
+        upFirst = out.firstIndex();
+        upTarget = out.flattenNodes();
+        upWeight = out.flattenWeights();
+        upMiddle = out.flattenMiddles();
+        downFirst = in.firstIndex();
+        downTarget = in.flattenNodes();
+        downWeight = in.flattenWeights();
+        downMiddle = in.flattenMiddles();
+
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(n));
+    }
+
+    /**
+     * Returns the number of shortcut arcs added by preprocessing.
+     *
+     * @return Shortcut count.
+     */
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Returns the cost of the cheapest passable path between two nodes.
+     *
+     * @param from Starting GeoNode.
+     * @param to Target GeoNode.
+     * @return Total path weight, or UNREACHABLE if no passable path exists.
+     */
+    public long distance(GeoNode from, GeoNode to) {
+        Workspace ws = workspaces.get();
+        int meet = search(indexOf(from), indexOf(to), ws);
+        return meet < 0 ? UNREACHABLE : ws.forwardDist[meet] + ws.backwardDist[meet];
+    }
+
+    /**
+     * Returns the cheapest passable path between two nodes, with every
+     * shortcut expanded back into original GeoEdge hops.
+     *
+     * @param from Starting GeoNode.
+     * @param to Target GeoNode.
+     * @return Ordered GeoNodes from 'from' to 'to', or null if unreachable.
+     */
+    public List<GeoNode> path(GeoNode from, GeoNode to) {
+        Workspace ws = workspaces.get();
+        int source = indexOf(from);
+        int meet = search(source, indexOf(to), ws);
+        if (meet < 0) {
+            return null;
+        }
+
+        // Collect the upward arcs from the source to the meeting node
+        Deque<Integer> upward = new ArrayDeque<>();
+        for (int v = meet; v != source; v = ws.forwardParent[v]) {
+            upward.push(v);
+        }
+
+        List<GeoNode> result = new ArrayList<>();
+        result.add(from);
+        int previous = source;
+        for (int v : upward) {
+            unpack(previous, v, result);
+            previous = v;
+        }
+        // Follow the downward arcs from the meeting node to the target
+        for (int v = meet; ws.backwardParent[v] >= 0; v = ws.backwardParent[v]) {
+            unpack(v, ws.backwardParent[v], result);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the bidirectional upward search and leaves the distances and
+     * parents of both directions in the workspace.
+     *
+     * @param source Index of the start node.
+     * @param target Index of the target node.
+     * @param ws Workspace of the calling thread.
+     * @return Index of the best meeting node, or -1 if unreachable.
+     */
+    private int search(int source, int target, Workspace ws) {
+        int stamp = ++ws.stamp;
+        LongIntMinHeap forward = ws.forwardHeap;
+        LongIntMinHeap backward = ws.backwardHeap;
+        forward.clear();
+        backward.clear();
+
+        ws.forwardStamp[source] = stamp;
+        ws.forwardDist[source] = 0;
+        ws.forwardParent[source] = -1;
+        forward.push(0, source);
+        ws.backwardStamp[target] = stamp;
+        ws.backwardDist[target] = 0;
+        ws.backwardParent[target] = -1;
+        backward.push(0, target);
+
+        long best = UNREACHABLE;
+        int meet = -1;
+        if (source == target) {
+            return source;
+        }
+
+        // Each direction stops once nothing left in its queue can improve
+        // on the best meeting point found so far
+        while (forward.peekKey() < best || backward.peekKey() < best) {
+            if (forward.peekKey() <= backward.peekKey()) {
+                long d = forward.peekKey();
+                int u = forward.pop();
+                if (d > ws.forwardDist[u]) {
+                    continue;
+                }
+                if (ws.backwardStamp[u] == stamp && d + ws.backwardDist[u] < best) {
+                    best = d + ws.backwardDist[u];
+                    meet = u;
+                }
+                if (stalledForward(u, d, ws, stamp)) {
+                    continue;
+                }
+                for (int a = upFirst[u]; a < upFirst[u + 1]; a++) {
+                    int x = upTarget[a];
+                    long nd = d + upWeight[a];
+                    if (ws.forwardStamp[x] != stamp || nd < ws.forwardDist[x]) {
+                        ws.forwardStamp[x] = stamp;
+                        ws.forwardDist[x] = nd;
+                        ws.forwardParent[x] = u;
+                        forward.push(nd, x);
+                    }
+                }
+            } else {
+                long d = backward.peekKey();
+                int u = backward.pop();
+                if (d > ws.backwardDist[u]) {
+                    continue;
+                }
+                if (ws.forwardStamp[u] == stamp && d + ws.forwardDist[u] < best) {
+                    best = d + ws.forwardDist[u];
+                    meet = u;
+                }
+                if (stalledBackward(u, d, ws, stamp)) {
+                    continue;
+                }
+                for (int a = downFirst[u]; a < downFirst[u + 1]; a++) {
+                    int x = downTarget[a];
+                    long nd = d + downWeight[a];
+                    if (ws.backwardStamp[x] != stamp || nd < ws.backwardDist[x]) {
+                        ws.backwardStamp[x] = stamp;
+                        ws.backwardDist[x] = nd;
+                        ws.backwardParent[x] = u;
+                        backward.push(nd, x);
+                    }
+                }
+            }
+        }
+        return meet;
+    }
+
+    /**
+     * Stall-on-demand for the forward search: a node reached more cheaply
+     * through a more important node cannot lie on a shortest upward path,
+     * so its arcs need not be relaxed. The arcs x->u from above are the
+     * ones stored in u's downward list.
+     *
+     * @param u Node just settled by the forward search.
+     * @param d Its tentative distance.
+     * @param ws Workspace of the calling thread.
+     * @param stamp Stamp of the current query.
+     * @return True if u can be skipped.
+     */
+    private boolean stalledForward(int u, long d, Workspace ws, int stamp) {
+        for (int a = downFirst[u]; a < downFirst[u + 1]; a++) {
+            int x = downTarget[a];
+            if (ws.forwardStamp[x] == stamp && ws.forwardDist[x] + downWeight[a] < d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stall-on-demand for the backward search, mirroring stalledForward()
+     * over the arcs u->x to more important nodes.
+     *
+     * @param u Node just settled by the backward search.
+     * @param d Its tentative distance.
+     * @param ws Workspace of the calling thread.
+     * @param stamp Stamp of the current query.
+     * @return True if u can be skipped.
+     */
+    private boolean stalledBackward(int u, long d, Workspace ws, int stamp) {
+        for (int a = upFirst[u]; a < upFirst[u + 1]; a++) {
+            int x = upTarget[a];
+            if (ws.backwardStamp[x] == stamp && ws.backwardDist[x] + upWeight[a] < d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the original nodes of arc from->to (excluding 'from') to the
+     * result, recursively expanding shortcuts.
+     *
+     * @param from Index of the arc's start node.
+     * @param to Index of the arc's end node.
+     * @param result Path being built.
+     */
+    private void unpack(int from, int to, List<GeoNode> result) {
+        int middle = -1;
+        // An upward arc is stored at its start, a downward one at its end
+        if (rank[to] > rank[from]) {
+            for (int a = upFirst[from]; a < upFirst[from + 1]; a++) {
+                if (upTarget[a] == to) {
+                    middle = upMiddle[a];
+                    break;
+                }
+            }
+        } else {
+            for (int a = downFirst[to]; a < downFirst[to + 1]; a++) {
+                if (downTarget[a] == from) {
+                    middle = downMiddle[a];
+                    break;
+                }
+            }
+        }
+        if (middle < 0) {
+            result.add(nodes.get(to));
+        } else {
+            unpack(from, middle, result);
+            unpack(middle, to, result);
+        }
+    }
+
+    /**
+     * Contracts every node in order of importance, adding shortcuts to
+     * the arc lists as it goes. A contracted node is unlinked from its
+     * neighbours' lists but keeps its own, which hold exactly its arcs in
+     * the final hierarchy.
+     *
+     * @param out Outgoing arcs per node.
+     * @param in Incoming arcs per node.
+     * @return Rank of every node in the contraction order.
+     */
+    private static int[] contractAll(ArcLists out, ArcLists in) {
+        int n = out.size.length;
+        int[] rank = new int[n];
+        int[] contractedNeighbors = new int[n];
+        // Longest chain of contracted nodes below each node, which keeps
+        // the hierarchy shallow and so the query search spaces small
+        int[] level = new int[n];
+        WitnessSearch witness = new WitnessSearch(n);
+
+        LongIntMinHeap queue = new LongIntMinHeap(n);
+        for (int v = 0; v < n; v++) {
+            queue.push(priority(v, out, in, contractedNeighbors, level, witness), v);
+        }
+
+        int nextRank = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.pop();
+            // Lazy update: re-evaluate and defer if no longer the cheapest
+            long current = priority(v, out, in, contractedNeighbors, level, witness);
+            if (!queue.isEmpty() && current > queue.peekKey()) {
+                queue.push(current, v);
+                continue;
+            }
+
+            contract(v, out, in, witness, CONTRACT_SETTLE_LIMIT, true);
+            rank[v] = nextRank++;
+            for (int i = 0; i < out.size[v]; i++) {
+                int x = out.node[v][i];
+                in.remove(x, in.find(x, v));
+                contractedNeighbors[x]++;
+                level[x] = Math.max(level[x], level[v] + 1);
+            }
+            for (int i = 0; i < in.size[v]; i++) {
+                int u = in.node[v][i];
+                out.remove(u, out.find(u, v));
+                contractedNeighbors[u]++;
+                level[u] = Math.max(level[u], level[v] + 1);
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Computes the contraction priority of a node: twice the shortcuts it
+     * would add minus the arcs it would remove, plus its contracted
+     * neighbours and its level.
+     */
+    private static long priority(int v, ArcLists out, ArcLists in, int[] contractedNeighbors, int[] level,
+                                 WitnessSearch witness) {
+        int removed = out.size[v] + in.size[v];
+        int shortcuts = contract(v, out, in, witness, ESTIMATE_SETTLE_LIMIT, false);
+        return 2L * (shortcuts - removed) + contractedNeighbors[v] + level[v];
+    }
+
+    /**
+     * Finds the shortcuts needed to contract a node and optionally adds
+     * them.
+     *
+     * @param v Node being contracted.
+     * @param out Outgoing arcs per node.
+     * @param in Incoming arcs per node.
+     * @param witness Reusable witness search.
+     * @param settleLimit Maximum nodes settled by each witness search.
+     * @param apply True to add the shortcuts, false to only count them.
+     * @return Number of shortcuts needed.
+     */
+    private static int contract(int v, ArcLists out, ArcLists in, WitnessSearch witness,
+                                int settleLimit, boolean apply) {
+        int shortcuts = 0;
+        // Shortcuts never touch the lists of v itself, so these stay valid
+        int[] targets = out.node[v];
+        long[] targetWeights = out.weight[v];
+        int targetCount = out.size[v];
+        for (int i = 0; i < in.size[v]; i++) {
+            int u = in.node[v][i];
+            long toV = in.weight[v][i];
+            long maxNeeded = -1;
+            for (int j = 0; j < targetCount; j++) {
+                if (targets[j] != u) {
+                    maxNeeded = Math.max(maxNeeded, toV + targetWeights[j]);
+                }
+            }
+            if (maxNeeded < 0) {
+                continue;
+            }
+            witness.run(u, v, maxNeeded, out, settleLimit, targets, targetCount);
+
+            for (int j = 0; j < targetCount; j++) {
+                int x = targets[j];
+                long needed = toV + targetWeights[j];
+                if (x != u && witness.distanceTo(x) > needed) {
+                    shortcuts++;
+                    if (apply) {
+                        addArc(out, in, u, x, needed, v);
+                    }
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Adds an arc, keeping only the cheapest arc between any ordered pair.
+     */
+    private static void addArc(ArcLists out, ArcLists in, int from, int to, long weight, int middle) {
+        int a = out.find(from, to);
+        if (a < 0) {
+            out.add(from, to, weight, middle);
+            in.add(to, from, weight, middle);
+        } else if (weight < out.weight[from][a]) {
+            int b = in.find(to, from);
+            out.weight[from][a] = weight;
+            out.middle[from][a] = middle;
+            in.weight[to][b] = weight;
+            in.middle[to][b] = middle;
+        }
+    }
+
+    /**
+     * Finds the position of a node in the hierarchy.
+     *
+     * @param node GeoNode to look up.
+     * @return Index of the node.
+     */
+    private int indexOf(GeoNode node) {
+        Integer index = indexByNode.get(node);
+        if (index == null) {
+            throw new IllegalArgumentException("Node is not part of this graph: " + node);
+        }
+        return index;
+    }
+
+
+    /**
+     * Arcs of every node during preprocessing, in growable primitive
+     * arrays. For an outgoing list the stored node is the arc's target;
+     * for an incoming list it is the arc's source.
+     */
+    private static final class ArcLists {
+        final int[][] node;
+        final long[][] weight;
+        final int[][] middle;
+        final int[] size;
+
+        ArcLists(int n) {
+            node = new int[n][];
+            weight = new long[n][];
+            middle = new int[n][];
+            size = new int[n];
+            for (int i = 0; i < n; i++) {
+                node[i] = new int[4];
+                weight[i] = new long[4];
+                middle[i] = new int[4];
+            }
+        }
+
+        int find(int owner, int other) {
+            int[] nodesOfOwner = node[owner];
+            for (int i = 0; i < size[owner]; i++) {
+                if (nodesOfOwner[i] == other) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void add(int owner, int other, long arcWeight, int arcMiddle) {
+            int i = size[owner]++;
+            if (i == node[owner].length) {
+                node[owner] = Arrays.copyOf(node[owner], i * 2);
+                weight[owner] = Arrays.copyOf(weight[owner], i * 2);
+                middle[owner] = Arrays.copyOf(middle[owner], i * 2);
+            }
+            node[owner][i] = other;
+            weight[owner][i] = arcWeight;
+            middle[owner][i] = arcMiddle;
+        }
+
+        // Removes by moving the last arc into the freed slot
+        void remove(int owner, int i) {
+            int last = --size[owner];
+            node[owner][i] = node[owner][last];
+            weight[owner][i] = weight[owner][last];
+            middle[owner][i] = middle[owner][last];
+        }
+
+        int total() {
+            int sum = 0;
+            for (int s : size) {
+                sum += s;
+            }
+            return sum;
+        }
+
+        int[] firstIndex() {
+            int[] first = new int[size.length + 1];
+            for (int i = 0; i < size.length; i++) {
+                first[i + 1] = first[i] + size[i];
+            }
+            return first;
+        }
+
+        int[] flattenNodes() {
+            int[] flat = new int[total()];
+            int next = 0;
+            for (int i = 0; i < size.length; i++) {
+                System.arraycopy(node[i], 0, flat, next, size[i]);
+                next += size[i];
+            }
+            return flat;
+        }
+
+        long[] flattenWeights() {
+            long[] flat = new long[total()];
+            int next = 0;
+            for (int i = 0; i < size.length; i++) {
+                System.arraycopy(weight[i], 0, flat, next, size[i]);
+                next += size[i];
+            }
+            return flat;
+        }
+
+        int[] flattenMiddles() {
+            int[] flat = new int[total()];
+            int next = 0;
+            for (int i = 0; i < size.length; i++) {
+                System.arraycopy(middle[i], 0, flat, next, size[i]);
+                next += size[i];
+            }
+            return flat;
+        }
+    }
+
+    /**
+     * Bounded Dijkstra search over the not-yet-contracted graph that
+     * looks for a path avoiding the node being contracted.
+     */
+    private static final class WitnessSearch {
+        private final long[] dist;
+        private final int[] stamp;
+        private final int[] targetStamp;
+        private final LongIntMinHeap heap = new LongIntMinHeap(64);
+        private int current;
+
+        WitnessSearch(int n) {
+            dist = new long[n];
+            stamp = new int[n];
+            targetStamp = new int[n];
+        }
+
+        void run(int source, int avoid, long maxDistance, ArcLists out, int settleLimit,
+                 int[] targets, int targetCount) {
+            current++;
+            heap.clear();
+            int remaining = 0;
+            for (int i = 0; i < targetCount; i++) {
+                if (targets[i] != source && targetStamp[targets[i]] != current) {
+                    targetStamp[targets[i]] = current;
+                    remaining++;
+                }
+            }
+            stamp[source] = current;
+            dist[source] = 0;
+            heap.push(0, source);
+            int settled = 0;
+            while (!heap.isEmpty() && settled < settleLimit) {
+                long d = heap.peekKey();
+                int u = heap.pop();
+                if (d > dist[u]) {
+                    continue;
+                }
+                if (d > maxDistance) {
+                    break;
+                }
+                settled++;
+                if (targetStamp[u] == current && --remaining == 0) {
+                    break;
+                }
+                // Contracted nodes are already unlinked from these lists
+                int[] heads = out.node[u];
+                long[] weights = out.weight[u];
+                for (int a = 0; a < out.size[u]; a++) {
+                    int x = heads[a];
+                    if (x == avoid) {
+                        continue;
+                    }
+                    long nd = d + weights[a];
+                    if (stamp[x] != current || nd < dist[x]) {
+                        stamp[x] = current;
+                        dist[x] = nd;
+                        heap.push(nd, x);
+                    }
+                }
+            }
+        }
+
+        long distanceTo(int node) {
+            return stamp[node] == current ? dist[node] : UNREACHABLE;
+        }
+    }
+}
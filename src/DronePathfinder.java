@@ -10,43 +10,70 @@
 //  The path starts and ends at the node closest the terminal.
 //  The algorithm ensures that all edges in the path do not
 //  cross the aerodrome boundary with the sole exception of
-//  returning to the start node. This guarantees an optimal
-//  solution for the Traveling Salesperson Problem (TSP) on
-//  the hot spot nodes, but the problem requirement
-//  introduces a flaw that causes it to sometimes not reach
+//  returning to the start node. This gives a fast, near-
+//  optimal solution for the Traveling Salesperson Problem
+//  (TSP) on the hot spot nodes; TourQualityHarness.java
+//  measures its gap to best-known tours. When the walk is
+//  cut off, for example inside the terminal notch, the
+//  hot spot nodes it missed are inserted into the route
+//  wherever both new edges are clear. The problem
+//  requirement still causes it to sometimes not reach
 //  some hot spot nodes if crossing the aerodrome is
 //  required to reach it (this is partly due to edges being
 //  straight instead of curved).
 //
+//  Edges are checked in 3D against an ObstacleField. By
+//  default it holds the aerodrome airspace, as a cylinder up
+//  to its ceiling, and the terminal building up to its roof.
+//  Callers can pass a field that also holds cranes and other
+//  obstacles.
+//
 //  The class is responsible for:
 //      Identifying all hotspot nodes in the graph.
 //      Finding the hotspot node closest to the terminal to
 //          serve as the starting point.
 //      Calculating the shortest, valid distance between every
 //          pair of hotspot nodes.
-//      Using dynamic programming to compute the optimal path
-//          sequence.
-//      Creating GeoEdge objects to represent the optimal path
-//          and adding them to the graph.
+//      Building the visiting sequence with a greedy nearest
+//          neighbor walk from the starting point.
+//      Inserting the hotspot nodes the walk was cut off from.
+//      Returning the route as an immutable Tour, from which
+//          GeoEdge objects can be created and added to the graph.
 //************************************************************
 
 import java.util.*;
 
 /**
- * Executes the optimal pathfinding algorithm with a Greedy Nearest
- * Neighbor heuristic to determine the best sequence of hotspot nodes to
+ * Plans a route through the hotspot nodes with a Greedy Nearest
+ * Neighbor heuristic, giving a near-optimal sequence of hotspot nodes to
  * visit.
  *
  * This class applies strict geometric constraints to ensure paths do not
- * cross the aerodrome space, except for the final closing edge.
+ * cross the aerodrome space or the terminal building, except for the
+ * final closing edge.
  */
 public class DronePathfinder {
 
     // Approximate radius of aerodrome boundary (degrees)
-    private static final double AERODROME_RADIUS_DEGREES = 0.0025;
+    static final double AERODROME_RADIUS_DEGREES = 0.0025;
     // Longitude and Latitude of aerodrome center for checks
-    private static final double AERODROME_LATITUDE = 40.4900;
-    private static final double AERODROME_LONGITUDE = -80.2365;
+    static final double AERODROME_LATITUDE = 40.4900;
+    static final double AERODROME_LONGITUDE = -80.2365;
+    // Number of corners of the polygon outlining the aerodrome
+    static final int AERODROME_OUTLINE_POINTS = 24;
+    // Elevation of the airfield and surrounding property (meters)
+    static final double GROUND_ELEVATION_METERS = 280;
+    // Aerodrome airspace reaches 2,500 ft (762m) above the field
+    private static final double AERODROME_CEILING_METERS = GROUND_ELEVATION_METERS + 762;
+    // Outline of the U-shaped terminal building, in ring order
+    static final double[] TERMINAL_LATITUDES = {40.4910, 40.4910, 40.4890, 40.4890, 40.4895, 40.4895, 40.4905, 40.4905};
+    static final double[] TERMINAL_LONGITUDES =
+            {-80.2330, -80.2310, -80.2310, -80.2330, -80.2330, -80.2315, -80.2315, -80.2330};
+    // Altitude of the terminal roof (meters)
+    static final double TERMINAL_ROOF_METERS = 330;
+
+    // Obstacles checked when the caller supplies none
+    static final ObstacleField DEFAULT_OBSTACLES = siteObstacles();
 
     /**
      * Executes the Greedy Nearest neighbor to find a near-optimal
@@ -56,6 +83,65 @@ public class DronePathfinder {
      * @param allNodes Master list of all GeoNodes in the graph.
      */
     public static void createOptimalRouteEdges(List<GeoNode> allNodes) {
+        Tour tour = planTour(allNodes);
+        if (tour.getHotspots().isEmpty()) {
+            System.out.println("No hotspot nodes found to create a path.");
+        } else if (!tour.isComplete()) {
+            System.out.println("Could not find a valid path to the next node. Path is incomplete.");
+        }
+
+        List<GeoEdge> routeEdges = tour.toEdges();
+        for (GeoEdge edge : routeEdges) {
+            edge.getFrom().addEdge(edge);
+        }
+
+        if (!routeEdges.isEmpty()) {
+            System.out.println("Optimal path edges have been added to the graph.");
+        }
+    }
+
+    /**
+     * Executes the Greedy Nearest neighbor to find a near-optimal
+     * cycle path through all nodes without modifying any GeoNode. This
+     * is safe to call from several threads against the same nodes, e.g.
+     * the nodes of a pinned GraphSnapshot. Nothing is printed, so it may
+     * also run more than once inside VersionedGraph.publish(); callers
+     * check the Tour from planTour() to report an incomplete route.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @return GeoEdges of the route in visiting order, ending with the
+     *         edge back to the start node.
+     */
+    public static List<GeoEdge> planRouteEdges(List<GeoNode> allNodes) {
+        // The final edge back to the start node bypasses the aerodrome
+        // check since it is required. Real implementation would curve it
+        return planTour(allNodes).toEdges();
+    }
+
+    /**
+     * Executes the Greedy Nearest neighbor over plain coordinate arrays and
+     * returns the result as a Tour. No GeoEdge is created and no GeoNode
+     * is modified.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @return Tour over the HOTSPOT nodes, starting at the hotspot closest
+     *         to the terminal.
+     */
+    public static Tour planTour(List<GeoNode> allNodes) {
+        return planTour(allNodes, DEFAULT_OBSTACLES);
+    }
+
+    /**
+     * Executes the Greedy Nearest neighbor as planTour(List), checking
+     * every leg except the closing one against a field of 3D obstacles.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @param obstacles Obstacles legs must clear, e.g. from
+     *                  siteObstacles() plus cranes.
+     * @return Tour over the HOTSPOT nodes, starting at the hotspot closest
+     *         to the terminal.
+     */
+    public static Tour planTour(List<GeoNode> allNodes, ObstacleField obstacles) {
         List<GeoNode> hotspotNodes = new ArrayList<>();
         // Filter the list to only include HOTSPOT nodes
         for (GeoNode node : allNodes) {
@@ -64,100 +150,159 @@ public class DronePathfinder {
             }
         }
 
-        if (hotspotNodes.isEmpty()) {
-            System.out.println("No hotspot nodes found to create a path.");
-            return;
+        int n = hotspotNodes.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] alt = new double[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = hotspotNodes.get(i).getLatitude();
+            lon[i] = hotspotNodes.get(i).getLongitude();
+            alt[i] = hotspotNodes.get(i).getAltitude();
+            order[i] = i;
         }
 
-        // Set used for checking of unvisited nodes
-        Set<GeoNode> unvisited = new HashSet<>(hotspotNodes);
-
-        // Determine starting node
-        GeoNode startNode = findClosestHotspotToTerminal(hotspotNodes);
-        if (startNode == null) {
-            System.out.println("Could not find a starting hotspot node.");
-            return;
+        int visited = 0;
+        if (n > 0) {
+            // Determine starting node and walk from it
+            swap(order, 0, closestToTerminal(lat, lon, order, 0, n));
+            visited = greedyWalk(lat, lon, alt, obstacles, order, 0, n);
+            visited = insertCutOff(lat, lon, alt, obstacles, order, visited, n);
         }
+        return new Tour(hotspotNodes, Arrays.copyOf(order, visited));
+    }
 
-        GeoNode currentNode = startNode;
-        unvisited.remove(startNode);
-
-        List<GeoNode> orderedPath = new ArrayList<>();
-        orderedPath.add(startNode);
+    /**
+     * Orders part of an index array with the Greedy Nearest Neighbor walk,
+     * never taking an edge that hits an obstacle. The walk starts at
+     * order[from] and reorders the range in place so that visited indices
+     * come first, in visiting order. It stops early if every remaining
+     * index is cut off by obstacles.
+     *
+     * @param lat Latitude of every node, by index.
+     * @param lon Longitude of every node, by index.
+     * @param alt Altitude of every node, by index.
+     * @param obstacles Obstacles every edge must clear.
+     * @param order Node indices; the range [from, to) is reordered.
+     * @param from Position of the start node.
+     * @param to End of the range (exclusive).
+     * @return End of the visited prefix (exclusive); the indices from there
+     *         to the end of the range were unreachable.
+     */
+    static int greedyWalk(double[] lat, double[] lon, double[] alt, ObstacleField obstacles,
+                          int[] order, int from, int to) {
+        int current = order[from];
+        int next = from + 1;
 
         // Core traversal loop
-        while (!unvisited.isEmpty()) {
-            // Find the closest valid node that doesn't cross aerodrome
-            GeoNode nextNode = findNearestValidNode(currentNode, unvisited);
-            if (nextNode == null) {
-                System.out.println("Could not find a valid path to the next node. Path is incomplete.");
+        while (next < to) {
+            // Find the closest valid node whose edge clears every obstacle
+            int nearest = -1;
+            double minDistance = Double.MAX_VALUE;
+            for (int k = next; k < to; k++) {
+                int candidate = order[k];
+                double distance = calculateDistance(lat[current], lon[current], lat[candidate], lon[candidate]);
+                // Only test the obstacles for nodes that would win
+                if (distance < minDistance && obstacles.isClear(lat[current], lon[current], alt[current],
+                        lat[candidate], lon[candidate], alt[candidate])) {
+                    minDistance = distance;
+                    nearest = k;
+                }
+            }
+            if (nearest < 0) {
                 break; // Exit if trapped by boundary
             }
-            // Add optimal edge to the current node
-            currentNode.addEdge(new GeoEdge(currentNode, nextNode));
-            orderedPath.add(nextNode);
-            unvisited.remove(nextNode);
-            currentNode = nextNode;
+            swap(order, next, nearest);
+            current = order[next++];
         }
+        return next;
+    }
 
-        // Add final edge back to the start node
-        if (!orderedPath.isEmpty() && orderedPath.size() > 1) {
-            GeoNode lastNode = orderedPath.get(orderedPath.size() - 1);
-            // This edge bypasses the aerodrome check since it is required
-            // Real implementation would curve this edge
-            lastNode.addEdge(new GeoEdge(lastNode, startNode));
+    /**
+     * Inserts the nodes a walk was cut off from into the visited prefix of
+     * an index array, each where it adds the least distance with both new
+     * edges clear. The edge back to the start at order[0] stays exempt.
+     * Nodes are retried until a pass inserts none, since one insertion can
+     * open a place for another.
+     *
+     * @param lat Latitude of every node, by index.
+     * @param lon Longitude of every node, by index.
+     * @param alt Altitude of every node, by index.
+     * @param obstacles Obstacles every edge must clear.
+     * @param order Node indices; the visited prefix is in visiting order.
+     * @param visited End of the visited prefix (exclusive).
+     * @param to End of the range (exclusive).
+     * @return End of the new visited prefix (exclusive); the indices from
+     *         there to the end of the range are still unreachable.
+     */
+    static int insertCutOff(double[] lat, double[] lon, double[] alt, ObstacleField obstacles,
+                            int[] order, int visited, int to) {
+        boolean inserted = true;
+        while (inserted && visited < to) {
+            inserted = false;
+            for (int k = visited; k < to; k++) {
+                int node = order[k];
+                int bestAfter = -1;
+                double bestDelta = Double.MAX_VALUE;
+                for (int p = 0; p < visited; p++) {
+                    int a = order[p];
+                    boolean closing = p == visited - 1;
+                    int b = closing ? order[0] : order[p + 1];
+                    double delta = calculateDistance(lat[a], lon[a], lat[node], lon[node])
+                            + calculateDistance(lat[node], lon[node], lat[b], lon[b])
+                            - calculateDistance(lat[a], lon[a], lat[b], lon[b]);
+                    // Only test the obstacles for places that would win
+                    if (delta < bestDelta
+                            && obstacles.isClear(lat[a], lon[a], alt[a], lat[node], lon[node], alt[node])
+                            && (closing
+                                || obstacles.isClear(lat[node], lon[node], alt[node], lat[b], lon[b], alt[b]))) {
+                        bestDelta = delta;
+                        bestAfter = p;
+                    }
+                }
+                if (bestAfter >= 0) {
+                    // Shift the positions between the place and the node over it
+                    System.arraycopy(order, bestAfter + 1, order, bestAfter + 2, k - bestAfter - 1);
+                    order[bestAfter + 1] = node;
+                    visited++;
+                    inserted = true;
+                }
+            }
         }
-
-        System.out.println("Optimal path edges have been added to the graph.");
+        return visited;
     }
 
     /**
-     * Finds hotspot node geographically closest to the terminal.
+     * Finds the node geographically closest to the terminal.
      *
-     * @param hotspotNodes List of all GeoNodes classified as HOTSPOTs.
-     * @return GeoNode closest to the terminal, or null if the list is empty.
+     * @param lat Latitude of every node, by index.
+     * @param lon Longitude of every node, by index.
+     * @param order Node indices; only the range [from, to) is searched.
+     * @param from Start of the range.
+     * @param to End of the range (exclusive).
+     * @return Position within order of the closest node.
      */
-    private static GeoNode findClosestHotspotToTerminal(List<GeoNode> hotspotNodes) {
-        GeoNode closestNode = null;
+    static int closestToTerminal(double[] lat, double[] lon, int[] order, int from, int to) {
+        int closest = from;
         double minDistance = Double.MAX_VALUE;
         // Reference coordinates for terminal
         double terminalLat = 40.4900;
         double terminalLon = -80.2315;
 
-        for (GeoNode node : hotspotNodes) {
-            double distance = calculateDistance(node.getLatitude(), node.getLongitude(), terminalLat, terminalLon);
+        for (int k = from; k < to; k++) {
+            double distance = calculateDistance(lat[order[k]], lon[order[k]], terminalLat, terminalLon);
             if (distance < minDistance) {
                 minDistance = distance;
-                closestNode = node;
+                closest = k;
             }
         }
-        return closestNode;
+        return closest;
     }
 
-    /**
-     * Finds the nearest valid unvisited hotspot node reachable from current node.
-     * A node is valid if the straight-line path to it does not cross the aerodrome.
-     *
-     * @param fromNode Current GeoNode.
-     * @param unvisited Set of GeoNodes not visited yet.
-     * @return Nearest valid node, or null if no valid, unvisited node.
-     */
-    private static GeoNode findNearestValidNode(GeoNode fromNode, Set<GeoNode> unvisited) {
-        GeoNode nearest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (GeoNode toNode : unvisited) {
-            // Check aerodrome constraint before calculating distance
-            if (!isEdgeCrossingAerodrome(fromNode, toNode)) {
-                double distance = calculateDistance(fromNode.getLatitude(), fromNode.getLongitude(),
-                        toNode.getLatitude(), toNode.getLongitude());
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearest = toNode;
-                }
-            }
-        }
-        return nearest;
+    private static void swap(int[] order, int i, int j) {
+        int temp = order[i];
+        order[i] = order[j];
+        order[j] = temp;
     }
 
     /**
@@ -173,67 +318,25 @@ public class DronePathfinder {
      * @param lon2 Longitude of second point.
      * @return Distance in degrees.
      */
-    private static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+    static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
         double latDiff = lat1 - lat2;
         double lonDiff = lon1 - lon2;
         return Math.sqrt(latDiff * latDiff + lonDiff * lonDiff);
     }
 
     /**
-     * Determines if the segment between GeoNodes intersects the aerodrome.
-     * This is solved using quadratic formula to find the intersection of a
-     * line segment and a circle.
+     * Creates an obstacle field holding the aerodrome airspace as a
+     * cylinder from the ground to its ceiling, and the terminal building
+     * as a prism from the ground to its roof. Callers may add cranes and
+     * other obstacles before planning.
      *
-     * @param n1 Starting GeoNode.
-     * @param n2 Ending GeoNode.
-     * @return True if the edge intersects aerodrome, false otherwise.
+     * @return A new field containing the aerodrome and the terminal.
      */
-    private static boolean isEdgeCrossingAerodrome(GeoNode n1, GeoNode n2) {
-        // Aerodrome coordinates and radius
-        double ax = AERODROME_LONGITUDE;
-        double ay = AERODROME_LATITUDE;
-        double r = AERODROME_RADIUS_DEGREES;
-
-        // Line segment endpoints.
-        double x1 = n1.getLongitude();
-        double y1 = n1.getLatitude();
-        double x2 = n2.getLongitude();
-        double y2 = n2.getLatitude();
-
-        // Vector from n1 to n2
-        double dx = x2 - x1;
-        double dy = y2 - y1;
-
-        // Vector from n1 to center of aerodrome.
-        double fx = x1 - ax;
-        double fy = y1 - ay;
-
-        // The intersection problem yields a quadratic equation: at^2 + bt + c = 0
-        // We solve for t, where 0 <= t <= 1 means intersection is on the segment.
-
-        // Calculate a (dot product of direction vector with itself)
-        double a = (dx * dx) + (dy * dy);
-        // Calculate b (twice the dot product of n1->center and n1->n2 vectors)
-        double b = 2 * ((fx * dx) + (fy * dy));
-        // Calculate c (squared distance from n1 to center minus radius squared)
-        double c = (fx * fx) + (fy * fy) - (r * r);
-
-        // Quadratic Formula discriminant. The discriminant determines
-        // the number of real roots (intersections)
-        double discriminant = (b * b) - 4 * (a * c);
-
-        if (discriminant < 0) {
-            // No real roots, the line does not intersect
-            return false;
-        } else {
-            // Calculate the intersection points
-            double t1 = (-b + Math.sqrt(discriminant)) / (2 * a);
-            double t2 = (-b - Math.sqrt(discriminant)) / (2 * a);
-
-            // Segment intersection check. If either root 't' is between 0 and 1,
-            // the intersection lies on the line segment, meaning the line intersects
-            // with the aerodrome
-            return (t1 >= 0 && t1 <= 1) || (t2 >= 0 && t2 <= 1);
-        }
+    public static ObstacleField siteObstacles() {
+        ObstacleField obstacles = new ObstacleField();
+        obstacles.addCylinder(AERODROME_LATITUDE, AERODROME_LONGITUDE, AERODROME_RADIUS_DEGREES,
+                0, AERODROME_CEILING_METERS);
+        obstacles.addPrism(TERMINAL_LATITUDES, TERMINAL_LONGITUDES, GROUND_ELEVATION_METERS, TERMINAL_ROOF_METERS);
+        return obstacles;
     }
-}
\ No newline at end of file
+}
@@ -49,13 +49,15 @@ import javafx.stage.Stage;
  */
 public class DroneRoutingDemo extends Application {
 
-    // Approximate radius of the aerodrome boundary in degrees
-    private static final double AERODROME_RADIUS_DEGREES = 0.0025;
-    // Number of nodes to define the aerodrome boundary outline
-    private static final int AERODROME_OUTLINE_NODES = 24;
-
-    // Master list of GeoNodes in the graph
-    private List<GeoNode> nodes;
+    // Number of hotspots to generate
+    private static final int HOTSPOT_COUNT = 30;
+    // Seed for hotspot generation; the same seed always gives the same layout
+    private static final long HOTSPOT_SEED = 42L;
+
+    // Versioned store of the graph's GeoNodes and GeoEdges
+    private VersionedGraph graph;
+    // 3D obstacles every planned leg must clear
+    private ObstacleField obstacles;
     // Root layout pane for JavaFX scene
     private BorderPane root;
 
@@ -67,7 +69,7 @@ public class DroneRoutingDemo extends Application {
      */
     @Override
     public void start(Stage primaryStage) {
-        this.nodes = buildGraph();
+        this.graph = new VersionedGraph(buildGraph());
         this.root = new BorderPane();
 
         // Render the initial graph structure
@@ -80,9 +82,8 @@ public class DroneRoutingDemo extends Application {
         // Create the button to execute the Greedy Nearest Neighbor algorithm
         Button runPathButton = new Button("Run Optimal Path");
         runPathButton.setOnAction(e -> {
-            clearHotspotEdges();
-            // Runs the algorithm
-            DronePathfinder.createOptimalRouteEdges(this.nodes);
+            // Runs the algorithm and publishes the route as a new graph version
+            graph.publish(snapshot -> DronePathfinder.planTour(snapshot.getNodes(), obstacles).applyTo(snapshot));
             // Re-render the visualization to display optimal path
             updateVisualization();
         });
@@ -101,8 +102,8 @@ public class DroneRoutingDemo extends Application {
      * This is called after graph updates (such as pathfinding algorithm run)
      */
     private void updateVisualization() {
-        // Renders the graph using GeoNodes list
-        Group graphGroup = GraphVisualization.render(this.nodes);
+        // Renders the latest published version of the graph
+        Group graphGroup = GraphVisualization.render(graph.current());
         root.setCenter(graphGroup);
     }
 
@@ -149,20 +150,6 @@ public class DroneRoutingDemo extends Application {
         return item;
     }
 
-    /**
-     * Removes all existing GeoEdges originating from HOTSPOT.
-     * This clears the previously computed optimal path to run the
-     * algorithm again.
-     */
-    private void clearHotspotEdges() {
-        for (GeoNode node : nodes) {
-            if (node.getZone() == ZoneType.HOTSPOT) {
-                // Clear the list of edges for this node
-                node.getEdges().clear();
-            }
-        }
-    }
-
     /**
      * Standard main method to launch JavaFX application.
      *
@@ -172,45 +159,6 @@ public class DroneRoutingDemo extends Application {
         launch(args);
     }
 
-    /**
-     * Checks if a given coordinate (lat, lon) falls within AERODROME.
-     * This uses Pythagorean distance approximation.
-     *
-     * @param lat Latitude of the point to check.
-     * @param lon Longitude of the point to check.
-     * @param aCenter Central node of the aerodrome.
-     * @return True if the point is within the aerodrome, false otherwise.
-     */
-    private boolean isWithinAerodrome(double lat, double lon, GeoNode aCenter) {
-        double latDiff = lat - aCenter.getLatitude();
-        double lonDiff = lon - aCenter.getLongitude();
-        // Uses squared distance comparison to avoid expensive square root operation
-        double distanceSquared = (latDiff * latDiff) + (lonDiff * lonDiff);
-        return distanceSquared <= (AERODROME_RADIUS_DEGREES * AERODROME_RADIUS_DEGREES);
-    }
-
-    /**
-     * Checks if given coordinate (lat, lon) falls within the bounds of
-     * the terminal structure.
-     *
-     * @param lat Latitude of the point to check.
-     * @param lon Longitude of the point to check.
-     * @return True if within the terminal, false otherwise.
-     */
-    private boolean isWithinTerminal(double lat, double lon) {
-        // Rectangle 1: top horizontal arm
-        boolean withinTopPart = (lat <= 40.4910 && lat >= 40.4905) &&
-                (lon >= -80.2330 && lon <= -80.2310);
-        // Rectangle 2: bottom horizontal arm
-        boolean withinBottomPart = (lat <= 40.4895 && lat >= 40.4890) &&
-                (lon >= -80.2330 && lon <= -80.2310);
-        // Rectangle 3: vertical spine fo terminal
-        boolean withinVerticalPart = (lat <= 40.4910 && lat >= 40.4890) &&
-                (lon >= -80.2330 && lon <= -80.2310);
-        // Logical OR ensures the point is within any part of the terminal
-        return withinTopPart || withinBottomPart || withinVerticalPart;
-    }
-
     /**
      * Initializes and returns the graph structure, including all nodes,
      * ensuring all constraints are met.
@@ -231,15 +179,18 @@ public class DroneRoutingDemo extends Application {
         GeoNode t_W_outer_N = new GeoNode("T-W-outer-N", ZoneType.TERMINAL, 40.4910, -80.2310, 330);
 
         // Aerodrome Nodes
-        GeoNode aCenter = new GeoNode("A-Center", ZoneType.AERODROME, 40.4900, -80.2365, 280);
+        GeoNode aCenter = new GeoNode("A-Center", ZoneType.AERODROME,
+                DronePathfinder.AERODROME_LATITUDE, DronePathfinder.AERODROME_LONGITUDE,
+                DronePathfinder.GROUND_ELEVATION_METERS);
 
         List<GeoNode> aerodromeOutlineNodes = new ArrayList<>();
         // Generate all nodes to form boundary of aerodrome
-        for (int i = 0; i < AERODROME_OUTLINE_NODES; i++) {
-            double angle = 2 * Math.PI * i / AERODROME_OUTLINE_NODES;
-            double lat = aCenter.getLatitude() + AERODROME_RADIUS_DEGREES * Math.sin(angle);
-            double lon = aCenter.getLongitude() + AERODROME_RADIUS_DEGREES * Math.cos(angle);
-            GeoNode outlineNode = new GeoNode("A-Outline-" + i, ZoneType.AERODROME, lat, lon, 280);
+        for (int i = 0; i < DronePathfinder.AERODROME_OUTLINE_POINTS; i++) {
+            double angle = 2 * Math.PI * i / DronePathfinder.AERODROME_OUTLINE_POINTS;
+            double lat = aCenter.getLatitude() + DronePathfinder.AERODROME_RADIUS_DEGREES * Math.sin(angle);
+            double lon = aCenter.getLongitude() + DronePathfinder.AERODROME_RADIUS_DEGREES * Math.cos(angle);
+            GeoNode outlineNode = new GeoNode("A-Outline-" + i, ZoneType.AERODROME, lat, lon,
+                    DronePathfinder.GROUND_ELEVATION_METERS);
             aerodromeOutlineNodes.add(outlineNode);
 
             aCenter.addEdge(new GeoEdge(aCenter, outlineNode));
@@ -258,42 +209,41 @@ public class DroneRoutingDemo extends Application {
         GeoNode pSE = new GeoNode("P-SE", ZoneType.PROPERTY_LINE, 40.4870, -80.2290, 285);
         GeoNode pSW = new GeoNode("P-SW", ZoneType.PROPERTY_LINE, 40.4870, -80.2460, 285);
 
-        // Randomly Generated Hotspots
-        GeoNode[] hotspots = new GeoNode[30];
-        for (int i = 0; i < 30; i++) {
-            double lat, lon, alt;
-            boolean isValid;
-            do {
-                // Generate random coordinates within property area
-                lat = 40.4880 + (Math.random() * 0.007);
-                lon = -80.2450 + (Math.random() * 0.015);
-                alt = 300 + (Math.random() * 20);
-
-                // Check constraints
-                boolean withinPropertyLine = (lat >= pSW.getLatitude() && lat <= pNW.getLatitude()) &&
-                        (lon >= pSW.getLongitude() && lon <= pNE.getLongitude());
-
-                boolean withinAerodrome = isWithinAerodrome(lat, lon, aCenter);
-
-                boolean withinTerminal = isWithinTerminal(lat, lon);
-
-                // Enforce minimum altitude if it is on top of the terminal
-                if (withinTerminal) {
-                    alt = 340;
-                }
-
-                // Check if hotspot is valid
-                isValid = withinPropertyLine && !withinAerodrome;
-            } while (!isValid);
-
-            hotspots[i] = new GeoNode("H" + (i + 1), ZoneType.HOTSPOT, lat, lon, alt);
+        // Zone polygons outlined by the terminal, aerodrome and property line nodes
+        ZoneClassifier zones = new ZoneClassifier();
+        zones.addPolygon(ZoneType.TERMINAL, List.of(t_N_outer, t_W_outer_N, t_W_outer_S, t_S_outer,
+                t_S_inner, t_E_inner_S, t_E_inner_N, t_N_inner));
+        zones.addPolygon(ZoneType.AERODROME, aerodromeOutlineNodes);
+        zones.addPolygon(ZoneType.PROPERTY_LINE, List.of(pNW, pNE, pSE, pSW));
+
+        // Flight legs must clear the aerodrome airspace and the terminal
+        // building from the ground up to its roof, as in every planner
+        obstacles = DronePathfinder.siteObstacles();
+
+        // Seeded hotspots, sampled inside the property area minus the
+        // aerodrome circle, so the same seed always gives the same layout.
+        // The generator only samples valid positions; the zone outlines
+        // check that every hotspot lies within the property line and
+        // outside the aerodrome polygon, and raise any hotspot over the
+        // terminal to its roof clearance
+        List<GeoNode> hotspots = ScenarioGenerator.demoProperty()
+                .generate(HOTSPOT_COUNT, HOTSPOT_SEED, ScenarioGenerator.Sampling.UNIFORM)
+                .toHotspotNodes(zones);
+        int insideProperty = 1 << ZoneType.PROPERTY_LINE.ordinal();
+        int insideAerodrome = 1 << ZoneType.AERODROME.ordinal();
+        for (GeoNode hotspot : hotspots) {
+            int mask = zones.zoneMask(hotspot.getLatitude(), hotspot.getLongitude());
+            if ((mask & insideProperty) == 0 || (mask & insideAerodrome) != 0) {
+                throw new IllegalStateException("Generated hotspot " + hotspot.getId()
+                        + " lies outside the property line or inside the aerodrome.");
+            }
         }
 
         // Aggregation and Initial Edge Creation
         nodes.addAll(List.of(t_N_outer, t_N_inner, t_E_inner_N, t_E_inner_S, t_S_inner,
                 t_S_outer, t_W_outer_S, t_W_outer_N, aCenter, pNW, pNE, pSE, pSW));
         nodes.addAll(aerodromeOutlineNodes);
-        nodes.addAll(Arrays.asList(hotspots));
+        nodes.addAll(hotspots);
 
         // Connect terminal boundary nodes to form the structure shape
         t_N_outer.addEdge(new GeoEdge(t_N_outer, t_W_outer_N));
@@ -20,6 +20,9 @@ import java.util.*;
  * to other GeoNodes, forming connections in the graph
  */
 public class GeoNode {
+    // Meters per degree of latitude (equirectangular approximation)
+    public static final double METERS_PER_DEGREE = 111_320.0;
+
     private final String id;
     private final ZoneType zone;
     private final double latitude;
@@ -53,11 +56,13 @@ public class GeoNode {
     }
 
     /**
-     * Returns the list of all outgoing edges from this node.
+     * Returns the list of all outgoing edges from this node. The list is a
+     * read-only view; use addEdge() to change it, or GraphSnapshot to
+     * share the graph between planners.
      *
-     * @return A list of GeoEdge objects.
+     * @return An unmodifiable list of GeoEdge objects.
      */
-    public List<GeoEdge> getEdges() { return edges; }
+    public List<GeoEdge> getEdges() { return Collections.unmodifiableList(edges); }
 
     /**
      * Returns the zone type of this node.
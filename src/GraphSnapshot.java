@@ -0,0 +1,148 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  GraphSnapshot.java
+//
+//  This is an immutable, versioned view of the GeoNode graph.
+//  Every GeoNode in the snapshot is paired with a frozen list
+//  of its outgoing GeoEdges, so a planner holding a snapshot
+//  can never observe another thread adding or clearing edges
+//  underneath it. Snapshots are never edited in place; the
+//  with...() methods return a new snapshot one version
+//  higher that shares every unchanged edge list with its
+//  parent (structural sharing), so publishing a new route
+//  only copies the edge lists that actually changed.
+//
+//  Snapshots are published and pinned through
+//  VersionedGraph.java. Old versions hold no locks or
+//  registrations and are reclaimed by the garbage collector
+//  as soon as no reader references them.
+//************************************************************
+
+import java.util.*;
+
+/**
+ * Immutable version of the routing graph. Holds the fixed list of
+ * GeoNodes and one unmodifiable edge list per node, indexed by the
+ * node's position in the node list.
+ */
+public final class GraphSnapshot {
+    private final long version;
+    private final List<GeoNode> nodes;
+    // Shared between all versions derived from the same node list
+    private final Map<GeoNode, Integer> indexByNode;
+    // Edge list per node index; unchanged lists are shared between versions
+    private final List<GeoEdge>[] edgesByNode;
+
+    /**
+     * Constructs the initial snapshot from a list of nodes, freezing a copy
+     * of every node's current outgoing edges.
+     *
+     * @param nodes Master list of all GeoNodes in the graph.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public GraphSnapshot(List<GeoNode> nodes) {
+        this.version = 0;
+        this.nodes = List.copyOf(nodes);
+        this.indexByNode = new IdentityHashMap<>();
+        this.edgesByNode = (List<GeoEdge>[]) new List[this.nodes.size()];
+        for (int i = 0; i < this.nodes.size(); i++) {
+            GeoNode node = this.nodes.get(i);
+            indexByNode.put(node, i);
+            edgesByNode[i] = List.copyOf(node.getEdges());
+        }
+    }
+
+    /**
+     * Constructs a derived snapshot. Only used by the with...() methods.
+     *
+     * @param parent Snapshot this version is derived from.
+     * @param edgesByNode Edge lists for the new version.
+     */
+    private GraphSnapshot(GraphSnapshot parent, List<GeoEdge>[] edgesByNode) {
+        this.version = parent.version + 1;
+        this.nodes = parent.nodes;
+        this.indexByNode = parent.indexByNode;
+        this.edgesByNode = edgesByNode;
+    }
+
+    /**
+     * Returns the version number of this snapshot. Each derived snapshot
+     * is exactly one version higher than the snapshot it came from.
+     *
+     * @return The version number.
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * Returns all GeoNodes in this snapshot.
+     *
+     * @return An unmodifiable list of GeoNodes.
+     */
+    public List<GeoNode> getNodes() { return nodes; }
+
+    /**
+     * Returns the outgoing edges of a node as of this version.
+     *
+     * @param node GeoNode to look up.
+     * @return An unmodifiable list of GeoEdge objects.
+     * @throws IllegalArgumentException If the node is not part of this graph.
+     */
+    public List<GeoEdge> getEdges(GeoNode node) {
+        return edgesByNode[indexOf(node)];
+    }
+
+    /**
+     * Returns a new snapshot in which the given edges have been appended
+     * to the edge lists of their 'from' nodes. Edge lists of nodes that
+     * gain no edges are shared with this snapshot.
+     *
+     * @param added Edges to add.
+     * @return The derived snapshot.
+     */
+    public GraphSnapshot withAddedEdges(Collection<GeoEdge> added) {
+        Map<Integer, List<GeoEdge>> grouped = new HashMap<>();
+        for (GeoEdge edge : added) {
+            grouped.computeIfAbsent(indexOf(edge.getFrom()), i -> new ArrayList<>()).add(edge);
+        }
+
+        List<GeoEdge>[] next = edgesByNode.clone();
+        for (Map.Entry<Integer, List<GeoEdge>> entry : grouped.entrySet()) {
+            List<GeoEdge> merged = new ArrayList<>(next[entry.getKey()]);
+            merged.addAll(entry.getValue());
+            next[entry.getKey()] = List.copyOf(merged);
+        }
+        return new GraphSnapshot(this, next);
+    }
+
+    /**
+     * Returns a new snapshot in which every node of the given zone has no
+     * outgoing edges. This replaces clearing the live edge lists before a
+     * new route is computed.
+     *
+     * @param zone Zone whose outgoing edges are removed.
+     * @return The derived snapshot.
+     */
+    public GraphSnapshot withoutEdgesFrom(ZoneType zone) {
+        List<GeoEdge>[] next = edgesByNode.clone();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i).getZone() == zone) {
+                next[i] = List.of();
+            }
+        }
+        return new GraphSnapshot(this, next);
+    }
+
+    /**
+     * Finds the position of a node in this snapshot.
+     *
+     * @param node GeoNode to look up.
+     * @return Index of the node in the node list.
+     */
+    private int indexOf(GeoNode node) {
+        Integer index = indexByNode.get(node);
+        if (index == null) {
+            throw new IllegalArgumentException("Node is not part of this graph: " + node);
+        }
+        return index;
+    }
+}
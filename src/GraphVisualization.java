@@ -39,7 +39,18 @@ public class GraphVisualization {
      * @return JavaFX Group object containing all graphical elements.
      */
     public static Group render(List<GeoNode> nodes) {
+        return render(new GraphSnapshot(nodes));
+    }
+
+    /**
+     * Renders a pinned version of the graph into a JavaFX Group object.
+     *
+     * @param snapshot GraphSnapshot to be visualized.
+     * @return JavaFX Group object containing all graphical elements.
+     */
+    public static Group render(GraphSnapshot snapshot) {
         Group root = new Group();
+        List<GeoNode> nodes = snapshot.getNodes();
 
         // Determine min/max extent of map data
         double minLat = Double.MAX_VALUE, maxLat = Double.MIN_VALUE;
@@ -108,7 +119,7 @@ public class GraphVisualization {
 
         // Draw Edges
         for (GeoNode node : nodes) {
-            for (GeoEdge edge : node.getEdges()) {
+            for (GeoEdge edge : snapshot.getEdges(node)) {
                 GeoNode target = edge.getTarget();
 
                 // Calculate starting point
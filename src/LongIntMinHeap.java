@@ -0,0 +1,116 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  LongIntMinHeap.java
+//
+//  This is a small binary min-heap of (long key, int value)
+//  pairs stored in two parallel primitive arrays. It is used
+//  by the graph searches in place of
+//  java.util.PriorityQueue so that a search does not box a
+//  key or allocate an entry object for every push. It has no
+//  decrease-key operation; callers push a node again with
+//  its better key and skip stale entries when popped.
+//************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over primitive (key, value) pairs, ordered by key.
+ */
+final class LongIntMinHeap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty heap.
+     *
+     * @param initialCapacity Number of entries before the arrays grow.
+     */
+    LongIntMinHeap(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 4);
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    /**
+     * Adds an entry to the heap.
+     *
+     * @param key Ordering key.
+     * @param value Value stored with the key.
+     */
+    void push(long key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        // Sift up from the new leaf
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Returns the smallest key without removing its entry.
+     *
+     * @return The smallest key, or Long.MAX_VALUE if the heap is empty.
+     */
+    long peekKey() {
+        return size == 0 ? Long.MAX_VALUE : keys[0];
+    }
+
+    /**
+     * Removes the entry with the smallest key and returns its value.
+     * The heap must not be empty.
+     *
+     * @return Value of the removed entry.
+     */
+    int pop() {
+        int top = values[0];
+        size--;
+        long key = keys[size];
+        int value = values[size];
+        // Sift the last entry down from the root
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return top;
+    }
+
+    /**
+     * Returns whether the heap holds no entries.
+     *
+     * @return True if empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries while keeping the allocated arrays.
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,581 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  ObstacleField.java
+//
+//  This class answers whether a straight 3D flight leg clears
+//  every obstacle around the airport. Obstacles are vertical
+//  volumes between a floor and a ceiling altitude:
+//      Prisms over an arbitrary polygon footprint, such as
+//          the terminal up to its roof
+//      Cylinders, such as the aerodrome's airspace up to its
+//          ceiling
+//      Boxes, such as construction cranes
+//  Horizontal coordinates are in degrees and altitudes in
+//  meters, so a cylinder's radius is measured the same way
+//  as DronePathfinder's aerodrome radius.
+//
+//  Obstacles are kept in a bounding-volume hierarchy (BVH):
+//  a binary tree of axis-aligned boxes built by splitting the
+//  obstacles at the median of the longer horizontal axis. A
+//  leg is tested against a box before anything inside it, so
+//  a leg that clears most of the field is answered in about
+//  logarithmic time. Only obstacles in the few leaves the leg
+//  passes through get an exact test. The tree is stored in
+//  flat arrays and queries allocate nothing, so planners can
+//  check every pair of hotspots against thousands of
+//  obstacles.
+//
+//  The tree is rebuilt on the first query after obstacles are
+//  added. A field must be fully built before it is shared;
+//  after that, any number of threads may query it.
+//************************************************************
+
+import java.util.*;
+
+/**
+ * Bounding-volume hierarchy of 3D obstacle volumes for flight leg
+ * clearance checks.
+ */
+public final class ObstacleField {
+
+    // Most obstacles held by one leaf of the hierarchy
+    private static final int LEAF_SIZE = 4;
+
+    private final List<Obstacle> obstacles = new ArrayList<>();
+    // Current hierarchy, or null if obstacles were added since it was built
+    private volatile Hierarchy hierarchy;
+
+    /**
+     * A vertical volume between a floor and a ceiling altitude.
+     */
+    private static final class Obstacle {
+        final double floor;
+        final double ceiling;
+        // Cylinder center and radius; radius is NaN for prisms
+        final double centerLat;
+        final double centerLon;
+        final double radius;
+        // Prism footprint; null for cylinders
+        final double[] lat;
+        final double[] lon;
+        // Horizontal bounding box
+        final double south;
+        final double north;
+        final double west;
+        final double east;
+
+        Obstacle(double centerLat, double centerLon, double radius, double floor, double ceiling) {
+            this.floor = floor;
+            this.ceiling = ceiling;
+            this.centerLat = centerLat;
+            this.centerLon = centerLon;
+            this.radius = radius;
+            this.lat = null;
+            this.lon = null;
+            this.south = centerLat - radius;
+            this.north = centerLat + radius;
+            this.west = centerLon - radius;
+            this.east = centerLon + radius;
+        }
+
+        Obstacle(double[] lat, double[] lon, double floor, double ceiling) {
+            this.floor = floor;
+            this.ceiling = ceiling;
+            this.centerLat = Double.NaN;
+            this.centerLon = Double.NaN;
+            this.radius = Double.NaN;
+            this.lat = lat.clone();
+            this.lon = lon.clone();
+            double s = Double.MAX_VALUE, n = -Double.MAX_VALUE, w = Double.MAX_VALUE, e = -Double.MAX_VALUE;
+            for (int i = 0; i < lat.length; i++) {
+                s = Math.min(s, lat[i]);
+                n = Math.max(n, lat[i]);
+                w = Math.min(w, lon[i]);
+                e = Math.max(e, lon[i]);
+            }
+            this.south = s;
+            this.north = n;
+            this.west = w;
+            this.east = e;
+        }
+
+        /**
+         * Checks if the leg from (lat, lon, alt) along (dLat, dLon, dAlt)
+         * enters this volume.
+         */
+        boolean blocks(double lat0, double lon0, double alt0, double dLat, double dLon, double dAlt) {
+            // Part of the leg within the altitude band
+            double t0 = 0;
+            double t1 = 1;
+            if (dAlt == 0) {
+                if (alt0 < floor || alt0 > ceiling) {
+                    return false;
+                }
+            } else {
+                double u = (floor - alt0) / dAlt;
+                double v = (ceiling - alt0) / dAlt;
+                t0 = Math.max(t0, Math.min(u, v));
+                t1 = Math.min(t1, Math.max(u, v));
+                if (t0 > t1) {
+                    return false;
+                }
+            }
+            double y0 = lat0 + t0 * dLat;
+            double x0 = lon0 + t0 * dLon;
+            double y1 = lat0 + t1 * dLat;
+            double x1 = lon0 + t1 * dLon;
+
+            if (lat == null) {
+                // Cylinder: closest point of the sub-leg to the center
+                double dx = x1 - x0;
+                double dy = y1 - y0;
+                double lengthSquared = dx * dx + dy * dy;
+                double t = lengthSquared == 0 ? 0
+                        : ((centerLon - x0) * dx + (centerLat - y0) * dy) / lengthSquared;
+                t = Math.max(0, Math.min(1, t));
+                double ex = x0 + t * dx - centerLon;
+                double ey = y0 + t * dy - centerLat;
+                return ex * ex + ey * ey <= radius * radius;
+            }
+
+            // Prism: the sub-leg starts inside the footprint or crosses its outline
+            if (containsPoint(y0, x0)) {
+                return true;
+            }
+            int n = lat.length;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                if (segmentsIntersect(x0, y0, x1, y1, lon[i], lat[i], lon[j], lat[j])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Even-odd ray cast against the prism footprint.
+         */
+        private boolean containsPoint(double y, double x) {
+            boolean inside = false;
+            int n = lat.length;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                if ((lat[i] > y) != (lat[j] > y)
+                        && x < (lon[j] - lon[i]) * (y - lat[i]) / (lat[j] - lat[i]) + lon[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+
+    /**
+     * The built tree in flat arrays. Nodes are stored depth first, so the
+     * left child of an inner node directly follows it.
+     */
+    private static final class Hierarchy {
+        // Obstacles in leaf order
+        final Obstacle[] ordered;
+        // Box of each node: south, west, floor, north, east, ceiling
+        final double[] bounds;
+        // Inner node: index of the right child; leaf: first obstacle
+        final int[] first;
+        // Obstacles in a leaf, or 0 for an inner node
+        final int[] count;
+        int size;
+
+        Hierarchy(List<Obstacle> obstacles) {
+            int n = obstacles.size();
+            this.ordered = obstacles.toArray(new Obstacle[0]);
+            int capacity = Math.max(1, 2 * n);
+            this.bounds = new double[6 * capacity];
+            this.first = new int[capacity];
+            this.count = new int[capacity];
+            if (n > 0) {
+                build(0, n);
+            }
+        }
+
+        /**
+         * Builds the subtree over ordered[from, to) and returns its node.
+         */
+        private int build(int from, int to) {
+            int node = size++;
+            double south = Double.MAX_VALUE, west = Double.MAX_VALUE, floor = Double.MAX_VALUE;
+            double north = -Double.MAX_VALUE, east = -Double.MAX_VALUE, ceiling = -Double.MAX_VALUE;
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+            double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int k = from; k < to; k++) {
+                Obstacle o = ordered[k];
+                south = Math.min(south, o.south);
+                west = Math.min(west, o.west);
+                floor = Math.min(floor, o.floor);
+                north = Math.max(north, o.north);
+                east = Math.max(east, o.east);
+                ceiling = Math.max(ceiling, o.ceiling);
+                double lat = (o.south + o.north) / 2;
+                double lon = (o.west + o.east) / 2;
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                minLon = Math.min(minLon, lon);
+                maxLon = Math.max(maxLon, lon);
+            }
+            int b = 6 * node;
+            bounds[b] = south;
+            bounds[b + 1] = west;
+            bounds[b + 2] = floor;
+            bounds[b + 3] = north;
+            bounds[b + 4] = east;
+            bounds[b + 5] = ceiling;
+
+            if (to - from <= LEAF_SIZE) {
+                first[node] = from;
+                count[node] = to - from;
+                return node;
+            }
+
+            // Split at the median center along the longer horizontal axis
+            boolean byLatitude = maxLat - minLat >= maxLon - minLon;
+            int middle = (from + to) >>> 1;
+            select(from, to - 1, middle, byLatitude);
+            build(from, middle);
+            first[node] = build(middle, to);
+            return node;
+        }
+
+        /**
+         * Quickselect over ordered[left, right] by obstacle center.
+         */
+        private void select(int left, int right, int k, boolean byLatitude) {
+            while (left < right) {
+                double pivot = center(ordered[(left + right) >>> 1], byLatitude);
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (center(ordered[i], byLatitude) < pivot) {
+                        i++;
+                    }
+                    while (center(ordered[j], byLatitude) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        Obstacle swap = ordered[i];
+                        ordered[i++] = ordered[j];
+                        ordered[j--] = swap;
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private static double center(Obstacle o, boolean byLatitude) {
+            return byLatitude ? o.south + o.north : o.west + o.east;
+        }
+
+        /**
+         * Checks the leg against the subtree at a node.
+         */
+        boolean blocks(int node, double lat0, double lon0, double alt0, double dLat, double dLon, double dAlt) {
+            int b = 6 * node;
+            if (!hitsBox(lat0, dLat, bounds[b], bounds[b + 3])
+                    || !hitsBox(lon0, dLon, bounds[b + 1], bounds[b + 4])
+                    || !hitsBox(alt0, dAlt, bounds[b + 2], bounds[b + 5])
+                    || !hitsBox(lat0, lon0, alt0, dLat, dLon, dAlt, b)) {
+                return false;
+            }
+            if (count[node] > 0) {
+                for (int k = first[node]; k < first[node] + count[node]; k++) {
+                    if (ordered[k].blocks(lat0, lon0, alt0, dLat, dLon, dAlt)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return blocks(node + 1, lat0, lon0, alt0, dLat, dLon, dAlt)
+                    || blocks(first[node], lat0, lon0, alt0, dLat, dLon, dAlt);
+        }
+
+        /**
+         * Quick reject on one axis: the leg's extent along it misses the box.
+         */
+        private static boolean hitsBox(double start, double delta, double min, double max) {
+            double end = start + delta;
+            return Math.max(start, end) >= min && Math.min(start, end) <= max;
+        }
+
+        /**
+         * Slab test of the leg against the box at bounds[b].
+         */
+        private boolean hitsBox(double lat0, double lon0, double alt0, double dLat, double dLon, double dAlt, int b) {
+            double t0 = 0;
+            double t1 = 1;
+            t0 = Math.max(t0, entry(lat0, dLat, bounds[b], bounds[b + 3]));
+            t1 = Math.min(t1, exit(lat0, dLat, bounds[b], bounds[b + 3]));
+            t0 = Math.max(t0, entry(lon0, dLon, bounds[b + 1], bounds[b + 4]));
+            t1 = Math.min(t1, exit(lon0, dLon, bounds[b + 1], bounds[b + 4]));
+            t0 = Math.max(t0, entry(alt0, dAlt, bounds[b + 2], bounds[b + 5]));
+            t1 = Math.min(t1, exit(alt0, dAlt, bounds[b + 2], bounds[b + 5]));
+            return t0 <= t1;
+        }
+    }
+
+    /**
+     * Adds a prism over a polygon footprint. The ring is closed implicitly;
+     * the last vertex should not repeat the first.
+     *
+     * @param lats Footprint vertex latitudes in degrees.
+     * @param lons Footprint vertex longitudes in degrees.
+     * @param floor Lowest altitude of the volume in meters.
+     * @param ceiling Highest altitude of the volume in meters.
+     */
+    public synchronized void addPrism(double[] lats, double[] lons, double floor, double ceiling) {
+        if (lats.length != lons.length || lats.length < 3) {
+            throw new IllegalArgumentException("A prism needs at least three footprint vertices.");
+        }
+        add(new Obstacle(lats, lons, floor, ceiling));
+    }
+
+    /**
+     * Adds a prism over a footprint outlined by GeoNodes in ring order, such
+     * as the terminal nodes of buildGraph(). The highest node altitude is
+     * used as the roof.
+     *
+     * @param ring GeoNodes along the outline.
+     * @param floor Lowest altitude of the volume in meters.
+     */
+    public void addPrism(List<GeoNode> ring, double floor) {
+        double[] lats = new double[ring.size()];
+        double[] lons = new double[ring.size()];
+        double roof = -Double.MAX_VALUE;
+        for (int i = 0; i < ring.size(); i++) {
+            lats[i] = ring.get(i).getLatitude();
+            lons[i] = ring.get(i).getLongitude();
+            roof = Math.max(roof, ring.get(i).getAltitude());
+        }
+        addPrism(lats, lons, floor, roof);
+    }
+
+    /**
+     * Adds a vertical cylinder.
+     *
+     * @param lat Latitude of the center in degrees.
+     * @param lon Longitude of the center in degrees.
+     * @param radiusDegrees Radius in degrees.
+     * @param floor Lowest altitude of the volume in meters.
+     * @param ceiling Highest altitude of the volume in meters.
+     */
+    public synchronized void addCylinder(double lat, double lon, double radiusDegrees, double floor, double ceiling) {
+        add(new Obstacle(lat, lon, radiusDegrees, floor, ceiling));
+    }
+
+    /**
+     * Adds a box aligned with the lines of latitude and longitude, such as
+     * a crane.
+     *
+     * @param south Southern edge in degrees.
+     * @param west Western edge in degrees.
+     * @param north Northern edge in degrees.
+     * @param east Eastern edge in degrees.
+     * @param floor Lowest altitude of the volume in meters.
+     * @param ceiling Highest altitude of the volume in meters.
+     */
+    public void addBox(double south, double west, double north, double east, double floor, double ceiling) {
+        addPrism(new double[]{south, south, north, north}, new double[]{west, east, east, west}, floor, ceiling);
+    }
+
+    private void add(Obstacle obstacle) {
+        if (obstacle.floor > obstacle.ceiling) {
+            throw new IllegalArgumentException("An obstacle's floor must not be above its ceiling.");
+        }
+        obstacles.add(obstacle);
+        hierarchy = null;
+    }
+
+    /**
+     * Returns the number of obstacles in the field.
+     *
+     * @return Number of obstacles.
+     */
+    public synchronized int size() {
+        return obstacles.size();
+    }
+
+    /**
+     * Checks if the straight leg between two points clears every obstacle.
+     * Altitude varies linearly along the leg.
+     *
+     * @param lat1 Latitude of the start in degrees.
+     * @param lon1 Longitude of the start in degrees.
+     * @param alt1 Altitude of the start in meters.
+     * @param lat2 Latitude of the end in degrees.
+     * @param lon2 Longitude of the end in degrees.
+     * @param alt2 Altitude of the end in meters.
+     * @return True if the leg touches no obstacle, false otherwise.
+     */
+    public boolean isClear(double lat1, double lon1, double alt1, double lat2, double lon2, double alt2) {
+        Hierarchy tree = hierarchy;
+        if (tree == null) {
+            tree = build();
+        }
+        return tree.size == 0 || !tree.blocks(0, lat1, lon1, alt1, lat2 - lat1, lon2 - lon1, alt2 - alt1);
+    }
+
+    /**
+     * Checks if the straight leg between two GeoNodes clears every
+     * obstacle.
+     *
+     * @param from Start of the leg.
+     * @param to End of the leg.
+     * @return True if the leg touches no obstacle, false otherwise.
+     */
+    public boolean isClear(GeoNode from, GeoNode to) {
+        return isClear(from.getLatitude(), from.getLongitude(), from.getAltitude(),
+                to.getLatitude(), to.getLongitude(), to.getAltitude());
+    }
+
+    private synchronized Hierarchy build() {
+        if (hierarchy == null) {
+            hierarchy = new Hierarchy(obstacles);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Checks a leg against every obstacle in turn, without the hierarchy.
+     */
+    private synchronized boolean isClearLinear(double lat1, double lon1, double alt1,
+                                               double lat2, double lon2, double alt2) {
+        for (Obstacle obstacle : obstacles) {
+            if (obstacle.blocks(lat1, lon1, alt1, lat2 - lat1, lon2 - lon1, alt2 - alt1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the parameter at which a leg enters a slab [min, max] along
+     * one axis.
+     */
+    private static double entry(double start, double delta, double min, double max) {
+        if (delta == 0) {
+            return start < min || start > max ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        }
+        return Math.min((min - start) / delta, (max - start) / delta);
+    }
+
+    /**
+     * Returns the parameter at which a leg leaves a slab [min, max] along
+     * one axis.
+     */
+    private static double exit(double start, double delta, double min, double max) {
+        if (delta == 0) {
+            return start < min || start > max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return Math.max((min - start) / delta, (max - start) / delta);
+    }
+
+    /**
+     * Checks if two segments intersect or touch.
+     */
+    private static boolean segmentsIntersect(double ax, double ay, double bx, double by,
+                                             double cx, double cy, double dx, double dy) {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+            return true;
+        }
+        // Collinear touching cases
+        return (d1 == 0 && onSegment(cx, cy, dx, dy, ax, ay))
+                || (d2 == 0 && onSegment(cx, cy, dx, dy, bx, by))
+                || (d3 == 0 && onSegment(ax, ay, bx, by, cx, cy))
+                || (d4 == 0 && onSegment(ax, ay, bx, by, dx, dy));
+    }
+
+    private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private static boolean onSegment(double ax, double ay, double bx, double by, double px, double py) {
+        return Math.min(ax, bx) <= px && px <= Math.max(ax, bx) && Math.min(ay, by) <= py && py <= Math.max(ay, by);
+    }
+
+    /**
+     * Checks every leg between random hotspots against a field of random
+     * cranes plus the terminal and aerodrome, once through the hierarchy
+     * and once by testing every obstacle, and prints both timings.
+     *
+     * @param args Optional crane count and hotspot count.
+     */
+    public static void main(String[] args) {
+        int cranes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int hotspots = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ObstacleField field = DronePathfinder.siteObstacles();
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int i = 0; i < cranes; i++) {
+            double lat = 40.4870 + random.nextDouble() * 0.0075;
+            double lon = -80.2460 + random.nextDouble() * 0.0170;
+            double half = 0.00002 + random.nextDouble() * 0.00004;
+            field.addBox(lat - half, lon - half, lat + half, lon + half, 280, 290 + random.nextDouble() * 40);
+        }
+
+        double[] lat = new double[hotspots];
+        double[] lon = new double[hotspots];
+        double[] alt = new double[hotspots];
+        for (int i = 0; i < hotspots; i++) {
+            lat[i] = 40.4880 + random.nextDouble() * 0.0065;
+            lon[i] = -80.2450 + random.nextDouble() * 0.0150;
+            alt[i] = 300 + random.nextDouble() * 20;
+        }
+
+        field.isClear(lat[0], lon[0], alt[0], lat[1], lon[1], alt[1]);
+        long start = System.nanoTime();
+        long clear = 0;
+        for (int i = 0; i < hotspots; i++) {
+            for (int j = 0; j < hotspots; j++) {
+                if (i != j && field.isClear(lat[i], lon[i], alt[i], lat[j], lon[j], alt[j])) {
+                    clear++;
+                }
+            }
+        }
+        double hierarchySeconds = (System.nanoTime() - start) / 1e9;
+
+        // The linear scan is much slower, so it only times a sample of the rows
+        int sampleRows = Math.max(1, hotspots / 20);
+        start = System.nanoTime();
+        long sampleClear = 0;
+        for (int i = 0; i < sampleRows; i++) {
+            for (int j = 0; j < hotspots; j++) {
+                if (i != j && field.isClearLinear(lat[i], lon[i], alt[i], lat[j], lon[j], alt[j])) {
+                    sampleClear++;
+                }
+            }
+        }
+        double linearSeconds = (System.nanoTime() - start) / 1e9;
+
+        long mismatches = 0;
+        for (int i = 0; i < sampleRows; i++) {
+            for (int j = 0; j < hotspots; j++) {
+                if (i != j && field.isClear(lat[i], lon[i], alt[i], lat[j], lon[j], alt[j])
+                        != field.isClearLinear(lat[i], lon[i], alt[i], lat[j], lon[j], alt[j])) {
+                    mismatches++;
+                }
+            }
+        }
+
+        long legs = (long) hotspots * (hotspots - 1);
+        long sampleLegs = (long) sampleRows * (hotspots - 1);
+        System.out.printf("%d obstacles, %d legs: %d clear%n", field.size(), legs, clear);
+        System.out.printf("  hierarchy %.3fs (%.0f ns/leg)%n", hierarchySeconds, hierarchySeconds * 1e9 / legs);
+        System.out.printf("  linear    %.0f ns/leg over %d sampled legs (%d clear), %d mismatches%n",
+                linearSeconds * 1e9 / sampleLegs, sampleLegs, sampleClear, mismatches);
+    }
+}
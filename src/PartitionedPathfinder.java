@@ -0,0 +1,611 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  PartitionedPathfinder.java
+//
+//  This class is the divide-and-conquer mode of the route
+//  planner for hotspot sets far too large for a single
+//  greedy walk. All HOTSPOT nodes are split recursively by
+//  a k-d split at the median of the longer side of their
+//  bounding box, measured in meters at the hotspots' mean
+//  latitude, until each part is small. Each part is then
+//  ordered by the same Greedy Nearest Neighbor walk
+//  DronePathfinder uses, and sibling parts are stitched
+//  back together, all as RecursiveTasks in a ForkJoinPool
+//  so that independent subtrees run on separate cores.
+//
+//  Two sub-tours are stitched by removing one edge from each
+//  and reconnecting the ends, choosing the cheapest of the
+//  edges near the split line. A short 2-opt pass around each
+//  stitch then repairs the seam. New edges created by the
+//  stitch or by 2-opt must clear the ObstacleField, which
+//  by default holds the aerodrome and the terminal.
+//
+//  As in DronePathfinder, only the closing edge back to the
+//  start may be blocked. Every sub-tour therefore keeps all
+//  of its edges clear except the one from its last position
+//  back to its first, which is left open: a greedy walk
+//  need not end where it can fly back to its start. A
+//  stitch must cut a sub-tour at its open edge if that edge
+//  is blocked, or carry it over as the open edge of the
+//  joined tour. When the route is finally rotated to start
+//  at the hotspot closest to the terminal, a blocked open
+//  edge becomes the closing edge.
+//
+//  Sub-tours that cannot be joined without hitting an
+//  obstacle, such as two parts on opposite sides of the
+//  aerodrome, are not forced together. They are handed up
+//  separately and joined at a higher level, where a part
+//  between them may provide a clear seam. Within a part,
+//  hotspots the greedy walk cannot reach are walked
+//  separately and handled the same way. Only sub-tours that
+//  still cannot be joined once every part is merged are
+//  broken up, and their hotspots inserted into the route
+//  one by one as in DronePathfinder, or else left
+//  unreachable.
+//************************************************************
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plans a route over very large hotspot sets by solving k-d partitions
+ * concurrently and stitching the sub-tours into one cycle.
+ */
+public final class PartitionedPathfinder {
+
+    // Largest part ordered directly by the greedy walk
+    private static final int DEFAULT_LEAF_SIZE = 256;
+    // Nodes nearest the split line tried as stitch points on each side
+    private static final int STITCH_CANDIDATES = 16;
+    // Candidates tried when none of the nearest can be joined legally
+    private static final int WIDE_STITCH_CANDIDATES = 128;
+    // Tour positions on each side of a stitch revisited by 2-opt
+    private static final int REPAIR_WINDOW = 24;
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] alt;
+    // Length of a longitude degree relative to a latitude degree at the
+    // hotspots' mean latitude
+    private final double longitudeScale;
+    private final ObstacleField obstacles;
+    private final int leafSize;
+
+    private PartitionedPathfinder(List<GeoNode> hotspots, ObstacleField obstacles, int leafSize) {
+        this.lat = new double[hotspots.size()];
+        this.lon = new double[hotspots.size()];
+        this.alt = new double[hotspots.size()];
+        double sumLat = 0;
+        for (int i = 0; i < lat.length; i++) {
+            lat[i] = hotspots.get(i).getLatitude();
+            lon[i] = hotspots.get(i).getLongitude();
+            alt[i] = hotspots.get(i).getAltitude();
+            sumLat += lat[i];
+        }
+        this.longitudeScale = Math.cos(Math.toRadians(lat.length == 0 ? 0 : sumLat / lat.length));
+        this.obstacles = obstacles;
+        this.leafSize = leafSize;
+    }
+
+    /**
+     * Plans a route over all HOTSPOT nodes using the common ForkJoinPool.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @return GeoEdges of the route in visiting order, starting at the
+     *         hotspot closest to the terminal and ending with the edge back
+     *         to it.
+     */
+    public static List<GeoEdge> planRouteEdges(List<GeoNode> allNodes) {
+        return planTour(allNodes).toEdges();
+    }
+
+    /**
+     * Plans a route over all HOTSPOT nodes using the common ForkJoinPool.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @return Tour over the HOTSPOT nodes, starting at the hotspot closest
+     *         to the terminal.
+     */
+    public static Tour planTour(List<GeoNode> allNodes) {
+        return planTour(allNodes, DronePathfinder.DEFAULT_OBSTACLES);
+    }
+
+    /**
+     * Plans a route over all HOTSPOT nodes using the common ForkJoinPool,
+     * keeping every edge except the closing one clear of a field of 3D
+     * obstacles.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @param obstacles Obstacles every edge except the closing one must
+     *                  clear.
+     * @return Tour over the HOTSPOT nodes, starting at the hotspot closest
+     *         to the terminal.
+     */
+    public static Tour planTour(List<GeoNode> allNodes, ObstacleField obstacles) {
+        return planTour(allNodes, obstacles, DEFAULT_LEAF_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plans a route over all HOTSPOT nodes. The search works on index
+     * arrays only; no GeoEdge is created and no GeoNode is modified.
+     *
+     * @param allNodes Master list of all GeoNodes in the graph.
+     * @param obstacles Obstacles every edge except the closing one must
+     *                  clear.
+     * @param leafSize Largest part ordered directly by the greedy walk.
+     * @param pool Pool the partitions are solved in.
+     * @return Tour over the HOTSPOT nodes, starting at the hotspot closest
+     *         to the terminal.
+     */
+    public static Tour planTour(List<GeoNode> allNodes, ObstacleField obstacles, int leafSize, ForkJoinPool pool) {
+        List<GeoNode> hotspots = new ArrayList<>();
+        for (GeoNode node : allNodes) {
+            if (node.getZone() == ZoneType.HOTSPOT) {
+                hotspots.add(node);
+            }
+        }
+        if (hotspots.isEmpty()) {
+            return new Tour(hotspots, new int[0]);
+        }
+
+        PartitionedPathfinder planner = new PartitionedPathfinder(hotspots, obstacles, Math.max(2, leafSize));
+        int[] permutation = new int[hotspots.size()];
+        for (int i = 0; i < permutation.length; i++) {
+            permutation[i] = i;
+        }
+        List<int[]> tours = planner.joinAll(pool.invoke(planner.new Part(permutation, 0, permutation.length)),
+                false, Double.NaN);
+        int[] tour = planner.startAtTerminal(tours.get(0));
+
+        // Hotspots of sub-tours that could not be joined in are inserted one
+        // by one where both new edges are clear, or else left unreachable
+        int[] order = Arrays.copyOf(tour, hotspots.size());
+        boolean[] onTour = new boolean[hotspots.size()];
+        for (int index : tour) {
+            onTour[index] = true;
+        }
+        int end = tour.length;
+        for (int i = 0; i < onTour.length; i++) {
+            if (!onTour[i]) {
+                order[end++] = i;
+            }
+        }
+        int visited = DronePathfinder.insertCutOff(planner.lat, planner.lon, planner.alt, obstacles,
+                order, tour.length, order.length);
+        return new Tour(hotspots, Arrays.copyOf(order, visited));
+    }
+
+    /**
+     * Rotates a sub-tour to start at the hotspot closest to the terminal.
+     * If its open edge is blocked, the order is rearranged so that the
+     * blocked edge becomes the closing edge back to the start, or else is
+     * replaced by clear edges. If neither is possible, the shorter side of
+     * the start is left unreachable.
+     *
+     * @param tour Joined sub-tour of every part.
+     * @return Visiting order starting at the hotspot closest to the terminal.
+     */
+    private int[] startAtTerminal(int[] tour) {
+        int n = tour.length;
+        int m = DronePathfinder.closestToTerminal(lat, lon, tour, 0, n);
+        if (!isOpen(tour)) {
+            return rotate(tour, m);
+        }
+        int[] order = new int[n];
+        int k = 0;
+
+        // The tour is a path from tour[0] to tour[n - 1]. Start at m, walk
+        // to one end of the path, then continue from the other side of m
+        // if the edge between them is clear
+        if (m == n - 1 || (m > 0 && !isBlocked(tour[0], tour[m + 1]))) {
+            for (int p = m; p >= 0; p--) {
+                order[k++] = tour[p];
+            }
+            for (int p = m + 1; p < n; p++) {
+                order[k++] = tour[p];
+            }
+            return order;
+        }
+        if (m == 0 || !isBlocked(tour[n - 1], tour[m - 1])) {
+            for (int p = m; p < n; p++) {
+                order[k++] = tour[p];
+            }
+            for (int p = m - 1; p >= 0; p--) {
+                order[k++] = tour[p];
+            }
+            return order;
+        }
+        closeOpenEdge(tour);
+        if (!isOpen(tour)) {
+            return rotate(tour, DronePathfinder.closestToTerminal(lat, lon, tour, 0, n));
+        }
+
+        // Keep the longer side of the start
+        if (m >= n - 1 - m) {
+            for (int p = m; p >= 0; p--) {
+                order[k++] = tour[p];
+            }
+        } else {
+            for (int p = m; p < n; p++) {
+                order[k++] = tour[p];
+            }
+        }
+        return Arrays.copyOf(order, k);
+    }
+
+    /**
+     * Solves the hotspots in one range of the shared permutation, which is
+     * reordered in place by the k-d split.
+     */
+    @SuppressWarnings("serial")
+    private final class Part extends RecursiveTask<List<int[]>> {
+        private final int[] permutation;
+        private final int from;
+        private final int to;
+
+        Part(int[] permutation, int from, int to) {
+            this.permutation = permutation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            if (to - from <= leafSize) {
+                return solveLeaf();
+            }
+
+            // Split at the median of the longer side of the bounding box
+            double south = Double.MAX_VALUE, north = -Double.MAX_VALUE;
+            double west = Double.MAX_VALUE, east = -Double.MAX_VALUE;
+            for (int k = from; k < to; k++) {
+                int i = permutation[k];
+                south = Math.min(south, lat[i]);
+                north = Math.max(north, lat[i]);
+                west = Math.min(west, lon[i]);
+                east = Math.max(east, lon[i]);
+            }
+            boolean splitByLatitude = north - south >= (east - west) * longitudeScale;
+            int middle = (from + to) >>> 1;
+            select(permutation, from, to - 1, middle, splitByLatitude);
+            double splitValue = splitByLatitude ? lat[permutation[middle]] : lon[permutation[middle]];
+
+            Part left = new Part(permutation, from, middle);
+            Part right = new Part(permutation, middle, to);
+            left.fork();
+            List<int[]> tours = new ArrayList<>(right.compute());
+            tours.addAll(left.join());
+            return joinAll(tours, splitByLatitude, splitValue);
+        }
+
+        /**
+         * Orders a small part with the greedy walk. Hotspots the walk could
+         * not reach are walked again on their own and stitched in where
+         * they can be. Each walk's edge back to its start is the open edge
+         * of its sub-tour.
+         */
+        private List<int[]> solveLeaf() {
+            int[] part = Arrays.copyOfRange(permutation, from, to);
+            List<int[]> chains = new ArrayList<>();
+            int next = 0;
+            while (next < part.length) {
+                int closest = DronePathfinder.closestToTerminal(lat, lon, part, next, part.length);
+                int swap = part[next];
+                part[next] = part[closest];
+                part[closest] = swap;
+                int end = DronePathfinder.greedyWalk(lat, lon, alt, obstacles, part, next, part.length);
+                chains.add(Arrays.copyOfRange(part, next, end));
+                next = end;
+            }
+            return joinAll(chains, false, Double.NaN);
+        }
+    }
+
+    /**
+     * Joins as many sub-tours as possible into the largest one.
+     *
+     * @param tours Sub-tours to join.
+     * @param byLatitude True if the parts were split by latitude.
+     * @param splitValue Coordinate of the split line, or NaN to try every
+     *                   position of both sub-tours.
+     * @return The joined sub-tour, followed by any that could not be
+     *         joined to it.
+     */
+    private List<int[]> joinAll(List<int[]> tours, boolean byLatitude, double splitValue) {
+        List<int[]> pending = new ArrayList<>(tours);
+        pending.sort(Comparator.comparingInt((int[] tour) -> tour.length).reversed());
+        int[] joined = pending.remove(0);
+        // A sub-tour may only fit once another has been joined in
+        boolean progress = true;
+        while (progress && !pending.isEmpty()) {
+            progress = false;
+            for (Iterator<int[]> it = pending.iterator(); it.hasNext(); ) {
+                int[] next = stitch(joined, it.next(), byLatitude, splitValue);
+                if (next != null) {
+                    joined = next;
+                    it.remove();
+                    progress = true;
+                }
+            }
+        }
+        pending.add(0, joined);
+        return pending;
+    }
+
+    /**
+     * Joins two sub-tours, trying the edges nearest the split line first
+     * and widening the search if none of those can be joined without
+     * hitting an obstacle.
+     *
+     * @param a First sub-tour.
+     * @param b Second sub-tour.
+     * @param byLatitude True if the parts were split by latitude.
+     * @param splitValue Coordinate of the split line, or NaN to try every
+     *                   position of both sub-tours.
+     * @return The joined sub-tour, or null if every join tried hits an
+     *         obstacle.
+     */
+    private int[] stitch(int[] a, int[] b, boolean byLatitude, double splitValue) {
+        if (Double.isNaN(splitValue)) {
+            return stitch(a, b, allPositions(a), allPositions(b));
+        }
+        int[] joined = stitch(a, b, nearSplit(a, byLatitude, splitValue, STITCH_CANDIDATES),
+                nearSplit(b, byLatitude, splitValue, STITCH_CANDIDATES));
+        if (joined == null) {
+            joined = stitch(a, b, nearSplit(a, byLatitude, splitValue, WIDE_STITCH_CANDIDATES),
+                    nearSplit(b, byLatitude, splitValue, WIDE_STITCH_CANDIDATES));
+        }
+        return joined;
+    }
+
+    /**
+     * Joins two sub-tours into one by replacing one edge of each with two
+     * connecting edges, then repairs the seam with 2-opt. Both new edges
+     * must be clear, except one that becomes the open edge of the joined
+     * tour, and a sub-tour whose open edge is blocked must be cut there
+     * unless that edge stays open.
+     *
+     * @param a First sub-tour.
+     * @param b Second sub-tour.
+     * @param candidatesA Positions in a whose outgoing edge may be replaced.
+     * @param candidatesB Positions in b whose outgoing edge may be replaced.
+     * @return The joined sub-tour, or null if every join hits an obstacle.
+     */
+    private int[] stitch(int[] a, int[] b, int[] candidatesA, int[] candidatesB) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        // Only a's open edge can be carried over, so a blocked one goes first
+        if (isOpen(b) && !isOpen(a)) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+            swap = candidatesA;
+            candidatesA = candidatesB;
+            candidatesB = swap;
+        }
+        int lastA = a.length - 1;
+        int[] positionsA = Arrays.copyOf(candidatesA, candidatesA.length + 1);
+        positionsA[candidatesA.length] = lastA;
+        int[] positionsB = isOpen(b) ? new int[]{b.length - 1} : candidatesB;
+
+        // Try every candidate edge pair both ways round
+        double best = Double.MAX_VALUE;
+        int[] choice = null;
+        for (int i : positionsA) {
+            int ai = a[i];
+            int aNext = a[(i + 1) % a.length];
+            double removedA = distance(ai, aNext);
+            for (int j : positionsB) {
+                int bj = b[j];
+                int bNext = b[(j + 1) % b.length];
+                double removed = removedA + distance(bj, bNext);
+                for (int reversed = 0; reversed < 2; reversed++) {
+                    // Forward: ai -> bNext ... bj -> aNext; reversed: ai -> bj ... bNext -> aNext
+                    int first = reversed == 0 ? bNext : bj;
+                    int last = reversed == 0 ? bj : bNext;
+                    double delta = distance(ai, first) + distance(last, aNext) - removed;
+                    // Cutting a's open edge makes last -> aNext the new open edge
+                    if (delta < best && !isBlocked(ai, first) && (i == lastA || !isBlocked(last, aNext))) {
+                        best = delta;
+                        choice = new int[]{i, j, reversed};
+                    }
+                }
+            }
+        }
+        if (choice == null) {
+            return null;
+        }
+        int i = choice[0];
+        int j = choice[1];
+        boolean reversed = choice[2] == 1;
+
+        // a[0..i], then all of b starting after or at j, then a[i+1..]
+        int[] joined = new int[a.length + b.length];
+        System.arraycopy(a, 0, joined, 0, i + 1);
+        for (int k = 0; k < b.length; k++) {
+            joined[i + 1 + k] = reversed
+                    ? b[Math.floorMod(j - k, b.length)]
+                    : b[(j + 1 + k) % b.length];
+        }
+        System.arraycopy(a, i + 1, joined, i + 1 + b.length, a.length - i - 1);
+
+        repair(joined, i);
+        repair(joined, i + b.length);
+        return joined;
+    }
+
+    /**
+     * Returns a cycle rotated to start at a position.
+     */
+    private static int[] rotate(int[] tour, int start) {
+        int[] order = new int[tour.length];
+        for (int p = 0; p < tour.length; p++) {
+            order[p] = tour[(start + p) % tour.length];
+        }
+        return order;
+    }
+
+    /**
+     * Replaces a blocked open edge and one other edge with two clear edges
+     * by a 2-opt move, choosing the cheapest such move. The tour is left
+     * unchanged if there is none.
+     *
+     * @param tour Sub-tour whose open edge is blocked.
+     */
+    private void closeOpenEdge(int[] tour) {
+        int n = tour.length;
+        int first = tour[0];
+        int last = tour[n - 1];
+        double best = Double.MAX_VALUE;
+        int bestQ = -1;
+        // Remove q -> q + 1 and last -> first, add q -> last and q + 1 -> first
+        for (int q = 1; q < n - 2; q++) {
+            double delta = distance(tour[q], last) + distance(tour[q + 1], first) - distance(tour[q], tour[q + 1]);
+            if (delta < best && !isBlocked(tour[q], last) && !isBlocked(tour[q + 1], first)) {
+                best = delta;
+                bestQ = q;
+            }
+        }
+        if (bestQ >= 0) {
+            reverse(tour, bestQ + 1, n - 1);
+        }
+    }
+
+    /**
+     * Returns true if the open edge of a sub-tour, from its last position
+     * back to its first, hits an obstacle.
+     */
+    private boolean isOpen(int[] tour) {
+        return tour.length > 1 && isBlocked(tour[tour.length - 1], tour[0]);
+    }
+
+    /**
+     * Returns every position of a tour.
+     */
+    private static int[] allPositions(int[] tour) {
+        int[] all = new int[tour.length];
+        for (int k = 0; k < all.length; k++) {
+            all[k] = k;
+        }
+        return all;
+    }
+
+    /**
+     * Returns the tour positions whose nodes lie nearest the split line.
+     */
+    private int[] nearSplit(int[] tour, boolean byLatitude, double splitValue, int count) {
+        if (tour.length <= count) {
+            return allPositions(tour);
+        }
+        // Keep the closest positions in a small sorted array
+        int[] best = new int[count];
+        double[] bestGap = new double[count];
+        Arrays.fill(bestGap, Double.MAX_VALUE);
+        for (int k = 0; k < tour.length; k++) {
+            double gap = Math.abs((byLatitude ? lat[tour[k]] : lon[tour[k]]) - splitValue);
+            if (gap < bestGap[count - 1]) {
+                int p = count - 1;
+                while (p > 0 && bestGap[p - 1] > gap) {
+                    bestGap[p] = bestGap[p - 1];
+                    best[p] = best[p - 1];
+                    p--;
+                }
+                bestGap[p] = gap;
+                best[p] = k;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs 2-opt over the tour positions around a stitch until no move
+     * within the window shortens the tour. Both new edges of a move must
+     * be clear, so a move may remove a blocked open edge but never adds
+     * one.
+     *
+     * @param tour Cycle to improve in place.
+     * @param center Position of the stitch edge.
+     */
+    private void repair(int[] tour, int center) {
+        int n = tour.length;
+        if (n < 4) {
+            return;
+        }
+        int low = Math.max(0, center - REPAIR_WINDOW);
+        int high = Math.min(n - 1, center + REPAIR_WINDOW);
+        boolean improved = true;
+        for (int pass = 0; improved && pass < 8; pass++) {
+            improved = false;
+            for (int p = low; p < high - 1; p++) {
+                for (int q = p + 2; q <= high; q++) {
+                    int a = tour[p];
+                    int aNext = tour[p + 1];
+                    int b = tour[q];
+                    int bNext = tour[(q + 1) % n];
+                    if (bNext == a) {
+                        continue;
+                    }
+                    double delta = distance(a, b) + distance(aNext, bNext) - distance(a, aNext) - distance(b, bNext);
+                    if (delta < -1e-12 && !isBlocked(a, b) && !isBlocked(aNext, bNext)) {
+                        reverse(tour, p + 1, q);
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int swap = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = swap;
+        }
+    }
+
+    private double distance(int i, int j) {
+        return DronePathfinder.calculateDistance(lat[i], lon[i], lat[j], lon[j]);
+    }
+
+    private boolean isBlocked(int i, int j) {
+        return !obstacles.isClear(lat[i], lon[i], alt[i], lat[j], lon[j], alt[j]);
+    }
+
+    /**
+     * Partially sorts a range of the permutation so that position k holds
+     * the element that would be there if the range were sorted by the
+     * chosen coordinate (quickselect).
+     */
+    private void select(int[] permutation, int left, int right, int k, boolean byLatitude) {
+        double[] key = byLatitude ? lat : lon;
+        while (left < right) {
+            double pivot = key[permutation[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (key[permutation[i]] < pivot) {
+                    i++;
+                }
+                while (key[permutation[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = permutation[i];
+                    permutation[i++] = permutation[j];
+                    permutation[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,462 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  PatrolSimulator.java
+//
+//  This is a headless discrete-event simulator that flies one
+//  or more drones around a tour produced by DronePathfinder
+//  for a whole shift and reports how well the tour covers the
+//  hotspots. It answers the questions the visualization in
+//  DroneRoutingDemo.java cannot: how long each hotspot goes
+//  unobserved between visits, how many of those intervals
+//  exceed an acceptable gap, and how many battery swaps the
+//  shift needs.
+//
+//  The tour is converted once into primitive arrays (leg
+//  lengths in meters and the hotspot visited at each stop),
+//  and every run keeps its drone and hotspot state in
+//  primitive arrays as well. Events are (time, drone) pairs
+//  in a LongIntMinHeap, so a run allocates nothing per event
+//  and a 30-hotspot shift completes in microseconds. A
+//  simulator is immutable once built, which lets sweep() run
+//  a whole parameter grid in parallel across all cores.
+//
+//  The model assumes that:
+//      Drones fly every leg in a straight line at a constant
+//          speed (altitude changes included in leg length)
+//      Drones start the shift evenly spaced along the tour
+//      A drone that cannot finish its next leg on the
+//          remaining battery has it swapped at its current
+//          hotspot by the ground crew
+//      A drone whose next leg is longer than a full battery
+//          stays grounded for the rest of the shift; the
+//          report counts such drones
+//************************************************************
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Simulates drones patrolling a closed GeoEdge tour over a shift and
+ * reports revisit intervals, coverage gaps and battery swaps.
+ */
+public final class PatrolSimulator {
+
+    // Event types, stored in the low bit of each heap value
+    private static final int EVENT_ARRIVE = 0;
+    private static final int EVENT_SWAP_DONE = 1;
+
+    private final int stopCount;
+    // Hotspot index visited at each stop of the tour
+    private final int[] stopHotspot;
+    // Length of the leg leaving each stop, in meters
+    private final double[] legMeters;
+    private final String[] hotspotIds;
+
+    /**
+     * Drone and shift settings for a single simulation run.
+     */
+    public static final class Parameters {
+        private final int droneCount;
+        private final double speedMetersPerSecond;
+        private final double enduranceSeconds;
+        private final double swapSeconds;
+        private final double shiftSeconds;
+        private final double gapThresholdSeconds;
+
+        /**
+         * Constructs a set of run parameters.
+         *
+         * @param droneCount Number of drones flying the tour.
+         * @param speedMetersPerSecond Cruise speed of every drone.
+         * @param enduranceSeconds Flight time on a full battery.
+         * @param swapSeconds Time the ground crew needs to swap a battery.
+         * @param shiftSeconds Length of the simulated shift.
+         * @param gapThresholdSeconds Revisit interval counted as a coverage gap.
+         */
+        public Parameters(int droneCount, double speedMetersPerSecond, double enduranceSeconds,
+                          double swapSeconds, double shiftSeconds, double gapThresholdSeconds) {
+            if (droneCount < 1 || speedMetersPerSecond <= 0 || enduranceSeconds <= 0 || shiftSeconds <= 0) {
+                throw new IllegalArgumentException("Drone count, speed, endurance and shift must be positive.");
+            }
+            if (swapSeconds < 0) {
+                throw new IllegalArgumentException("Swap time must not be negative.");
+            }
+            this.droneCount = droneCount;
+            this.speedMetersPerSecond = speedMetersPerSecond;
+            this.enduranceSeconds = enduranceSeconds;
+            this.swapSeconds = swapSeconds;
+            this.shiftSeconds = shiftSeconds;
+            this.gapThresholdSeconds = gapThresholdSeconds;
+        }
+
+        /**
+         * Returns the number of drones flying the tour.
+         *
+         * @return Drone count.
+         */
+        public int getDroneCount() { return droneCount; }
+
+        /**
+         * Returns the cruise speed of every drone.
+         *
+         * @return Speed in meters per second.
+         */
+        public double getSpeedMetersPerSecond() { return speedMetersPerSecond; }
+
+        /**
+         * Returns the flight time on a full battery.
+         *
+         * @return Endurance in seconds.
+         */
+        public double getEnduranceSeconds() { return enduranceSeconds; }
+
+        /**
+         * Returns the time needed to swap a battery.
+         *
+         * @return Swap time in seconds.
+         */
+        public double getSwapSeconds() { return swapSeconds; }
+
+        /**
+         * Returns the length of the simulated shift.
+         *
+         * @return Shift length in seconds.
+         */
+        public double getShiftSeconds() { return shiftSeconds; }
+
+        /**
+         * Returns the revisit interval counted as a coverage gap.
+         *
+         * @return Threshold in seconds.
+         */
+        public double getGapThresholdSeconds() { return gapThresholdSeconds; }
+
+        @Override
+        public String toString() {
+            return String.format("%d drones @ %.1fm/s, %.0fs battery, %.0fs swap", droneCount,
+                    speedMetersPerSecond, enduranceSeconds, swapSeconds);
+        }
+    }
+
+    /**
+     * Outcome of one simulated shift. Per-hotspot values are indexed in
+     * the order of getHotspotIds().
+     */
+    public static final class PatrolReport {
+        private final Parameters parameters;
+        private final String[] hotspotIds;
+        private final int[] visits;
+        private final double[] maxIntervalSeconds;
+        private final double[] meanIntervalSeconds;
+        private final int coverageGaps;
+        private final int batterySwaps;
+        private final int groundedDrones;
+        private final long events;
+
+        private PatrolReport(Parameters parameters, String[] hotspotIds, int[] visits, double[] maxIntervalSeconds,
+                             double[] meanIntervalSeconds, int coverageGaps, int batterySwaps, int groundedDrones,
+                             long events) {
+            this.parameters = parameters;
+            this.hotspotIds = hotspotIds;
+            this.visits = visits;
+            this.maxIntervalSeconds = maxIntervalSeconds;
+            this.meanIntervalSeconds = meanIntervalSeconds;
+            this.coverageGaps = coverageGaps;
+            this.batterySwaps = batterySwaps;
+            this.groundedDrones = groundedDrones;
+            this.events = events;
+        }
+
+        /**
+         * Returns the parameters the shift was simulated with.
+         *
+         * @return Run parameters.
+         */
+        public Parameters getParameters() { return parameters; }
+
+        /**
+         * Returns the IDs of the hotspots on the tour, in tour order.
+         *
+         * @return Hotspot IDs.
+         */
+        public List<String> getHotspotIds() { return List.of(hotspotIds); }
+
+        /**
+         * Returns the number of visits to a hotspot during the shift.
+         *
+         * @param hotspot Index into getHotspotIds().
+         * @return Visit count.
+         */
+        public int getVisits(int hotspot) { return visits[hotspot]; }
+
+        /**
+         * Returns the longest time a hotspot went unobserved, including the
+         * time before its first visit and after its last one.
+         *
+         * @param hotspot Index into getHotspotIds().
+         * @return Interval in seconds.
+         */
+        public double getMaxIntervalSeconds(int hotspot) { return maxIntervalSeconds[hotspot]; }
+
+        /**
+         * Returns the mean time between consecutive visits to a hotspot.
+         *
+         * @param hotspot Index into getHotspotIds().
+         * @return Interval in seconds, or NaN if visited fewer than twice.
+         */
+        public double getMeanIntervalSeconds(int hotspot) { return meanIntervalSeconds[hotspot]; }
+
+        /**
+         * Returns the worst revisit interval over all hotspots.
+         *
+         * @return Interval in seconds.
+         */
+        public double getWorstIntervalSeconds() {
+            double worst = 0;
+            for (double interval : maxIntervalSeconds) {
+                worst = Math.max(worst, interval);
+            }
+            return worst;
+        }
+
+        /**
+         * Returns the number of unobserved intervals, over all hotspots,
+         * longer than the gap threshold of the parameters.
+         *
+         * @return Gap count.
+         */
+        public int getCoverageGaps() { return coverageGaps; }
+
+        /**
+         * Returns the number of battery swaps during the shift.
+         *
+         * @return Swap count.
+         */
+        public int getBatterySwaps() { return batterySwaps; }
+
+        /**
+         * Returns the number of drones grounded before the end of the
+         * shift because their next leg is longer than a full battery.
+         *
+         * @return Grounded drone count.
+         */
+        public int getGroundedDrones() { return groundedDrones; }
+
+        /**
+         * Returns the number of events processed during the run.
+         *
+         * @return Event count.
+         */
+        public long getEvents() { return events; }
+
+        @Override
+        public String toString() {
+            String report = String.format("%s -> worst revisit %.0fs, %d gaps, %d swaps", parameters,
+                    getWorstIntervalSeconds(), coverageGaps, batterySwaps);
+            return groundedDrones == 0 ? report : report + ", " + groundedDrones + " grounded";
+        }
+    }
+
+    /**
+     * Constructs a simulator for a closed tour, such as the edges returned
+     * by DronePathfinder.planRouteEdges().
+     *
+     * @param tour GeoEdges in visiting order; each edge must start where
+     *             the previous one ended.
+     */
+    public PatrolSimulator(List<GeoEdge> tour) {
+        if (tour.isEmpty()) {
+            throw new IllegalArgumentException("Tour has no edges to simulate.");
+        }
+        this.stopCount = tour.size();
+        this.stopHotspot = new int[stopCount];
+        this.legMeters = new double[stopCount];
+
+        Map<GeoNode, Integer> hotspotIndex = new IdentityHashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < stopCount; i++) {
+            GeoEdge edge = tour.get(i);
+            if (i > 0 && tour.get(i - 1).getTarget() != edge.getFrom()) {
+                throw new IllegalArgumentException("Tour is not continuous at edge " + i + ".");
+            }
+            GeoNode stop = edge.getFrom();
+            Integer index = hotspotIndex.get(stop);
+            if (index == null) {
+                index = ids.size();
+                hotspotIndex.put(stop, index);
+                ids.add(stop.getId());
+            }
+            stopHotspot[i] = index;
+            legMeters[i] = legLength(stop, edge.getTarget());
+        }
+        this.hotspotIds = ids.toArray(new String[0]);
+    }
+
+    /**
+     * Simulates a single shift.
+     *
+     * @param parameters Drone and shift settings.
+     * @return Coverage report for the shift.
+     */
+    public PatrolReport run(Parameters parameters) {
+        int drones = parameters.droneCount;
+        int hotspots = hotspotIds.length;
+        long shiftMillis = Math.round(parameters.shiftSeconds * 1000);
+        long enduranceMillis = Math.round(parameters.enduranceSeconds * 1000);
+        long swapMillis = Math.round(parameters.swapSeconds * 1000);
+        long gapMillis = Math.round(parameters.gapThresholdSeconds * 1000);
+
+        long[] legMillis = new long[stopCount];
+        for (int i = 0; i < stopCount; i++) {
+            // Every leg takes at least a millisecond, so simulated time
+            // advances even around a tour of coincident hotspots
+            legMillis[i] = Math.max(1, Math.round(legMeters[i] / parameters.speedMetersPerSecond * 1000));
+        }
+
+        // Hotspot state
+        long[] lastVisit = new long[hotspots];
+        long[] maxInterval = new long[hotspots];
+        long[] intervalSum = new long[hotspots];
+        int[] visits = new int[hotspots];
+        int gaps = 0;
+
+        // Drone state: stop the drone is at or flying to, remaining battery
+        int[] droneStop = new int[drones];
+        long[] battery = new long[drones];
+        int swaps = 0;
+        int grounded = 0;
+        long events = 0;
+
+        LongIntMinHeap queue = new LongIntMinHeap(drones * 2);
+        for (int d = 0; d < drones; d++) {
+            droneStop[d] = (int) ((long) d * stopCount / drones);
+            battery[d] = enduranceMillis;
+            queue.push(0, (d << 1) | EVENT_ARRIVE);
+        }
+
+        while (!queue.isEmpty() && queue.peekKey() <= shiftMillis) {
+            long time = queue.peekKey();
+            int event = queue.pop();
+            int d = event >>> 1;
+            int stop = droneStop[d];
+            events++;
+
+            if ((event & 1) == EVENT_ARRIVE) {
+                int h = stopHotspot[stop];
+                long interval = time - lastVisit[h];
+                if (visits[h] > 0) {
+                    intervalSum[h] += interval;
+                }
+                maxInterval[h] = Math.max(maxInterval[h], interval);
+                if (interval > gapMillis) {
+                    gaps++;
+                }
+                lastVisit[h] = time;
+                visits[h]++;
+
+                if (battery[d] < legMillis[stop]) {
+                    // Not enough charge for the next leg: swap here
+                    swaps++;
+                    queue.push(time + swapMillis, (d << 1) | EVENT_SWAP_DONE);
+                    continue;
+                }
+            } else {
+                battery[d] = enduranceMillis;
+                if (battery[d] < legMillis[stop]) {
+                    // Leg is longer than a full battery; the drone stays grounded
+                    grounded++;
+                    continue;
+                }
+            }
+
+            battery[d] -= legMillis[stop];
+            droneStop[d] = (stop + 1) % stopCount;
+            queue.push(time + legMillis[stop], (d << 1) | EVENT_ARRIVE);
+        }
+
+        // Close out the time each hotspot has gone unobserved at shift end
+        double[] maxSeconds = new double[hotspots];
+        double[] meanSeconds = new double[hotspots];
+        for (int h = 0; h < hotspots; h++) {
+            long tail = shiftMillis - lastVisit[h];
+            maxInterval[h] = Math.max(maxInterval[h], tail);
+            if (tail > gapMillis) {
+                gaps++;
+            }
+            maxSeconds[h] = maxInterval[h] / 1000.0;
+            meanSeconds[h] = visits[h] < 2 ? Double.NaN : intervalSum[h] / 1000.0 / (visits[h] - 1);
+        }
+        return new PatrolReport(parameters, hotspotIds, visits, maxSeconds, meanSeconds, gaps, swaps, grounded,
+                events);
+    }
+
+    /**
+     * Simulates one shift per parameter set, spreading the runs over all
+     * available cores.
+     *
+     * @param grid Parameter sets to evaluate.
+     * @return Reports in the same order as the parameter sets.
+     */
+    public List<PatrolReport> sweep(List<Parameters> grid) {
+        return grid.parallelStream().map(this::run).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the 3D straight-line length of a leg in meters.
+     *
+     * @param from Start of the leg.
+     * @param to End of the leg.
+     * @return Leg length in meters.
+     */
+    private static double legLength(GeoNode from, GeoNode to) {
+        double meanLat = Math.toRadians((from.getLatitude() + to.getLatitude()) / 2);
+        double north = (to.getLatitude() - from.getLatitude()) * GeoNode.METERS_PER_DEGREE;
+        double east = (to.getLongitude() - from.getLongitude()) * GeoNode.METERS_PER_DEGREE * Math.cos(meanLat);
+        double up = to.getAltitude() - from.getAltitude();
+        return Math.sqrt(north * north + east * east + up * up);
+    }
+
+    /**
+     * Plans a tour over randomly placed hotspots and sweeps drone count,
+     * speed, endurance and swap time over it, printing throughput and the
+     * best configurations.
+     *
+     * @param args Optional hotspot count and random seed.
+     */
+    public static void main(String[] args) {
+        int hotspotCount = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        List<GeoNode> nodes = ScenarioGenerator.demoHotspots(hotspotCount, seed);
+        PatrolSimulator simulator = new PatrolSimulator(DronePathfinder.planRouteEdges(nodes));
+
+        List<Parameters> grid = new ArrayList<>();
+        for (int drones = 1; drones <= 10; drones++) {
+            for (double speed = 8; speed <= 20; speed += 1) {
+                for (double endurance = 900; endurance <= 2400; endurance += 300) {
+                    for (double swap = 60; swap <= 180; swap += 60) {
+                        grid.add(new Parameters(drones, speed, endurance, swap, 8 * 3600, 300));
+                    }
+                }
+            }
+        }
+
+        // Warm up, then time the full sweep
+        simulator.sweep(grid);
+        long start = System.nanoTime();
+        List<PatrolReport> reports = new ArrayList<>(simulator.sweep(grid));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long events = 0;
+        for (PatrolReport report : reports) {
+            events += report.getEvents();
+        }
+        System.out.printf("Simulated %d shifts (%d events) in %.3fs: %.0f shifts/s%n",
+                reports.size(), events, seconds, reports.size() / seconds);
+
+        reports.sort(Comparator.comparingDouble(PatrolReport::getWorstIntervalSeconds));
+        for (int i = 0; i < Math.min(5, reports.size()); i++) {
+            System.out.println(reports.get(i));
+        }
+    }
+}
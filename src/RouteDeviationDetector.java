@@ -0,0 +1,324 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  RouteDeviationDetector.java
+//
+//  This class checks live position fixes against the planned
+//  route and the aerodrome and raises deviation events. It
+//  is a FixHandler, so it runs directly on a
+//  TelemetryRingBuffer processor thread.
+//
+//  The planned GeoEdge segments are projected once into a
+//  local metric plane and bucketed into a uniform grid whose
+//  cells are about one tolerance wide. Each cell lists every
+//  segment passing within the tolerance of it (the cells the
+//  segment's capsule overlaps, not its whole bounding box),
+//  so a fix only measures its distance to the few segments
+//  of its own cell.
+//  Aerodrome checks go through the grid-accelerated polygons
+//  of a ZoneClassifier. Neither check allocates, and events
+//  are reported through a listener with primitive arguments.
+//
+//  A detector can be restricted to one partition of the
+//  drones (droneId % partitions), so several detectors on
+//  separate processors split the fleet without sharing any
+//  state. The planned closing edge may cross the aerodrome,
+//  so a drone flying it is reported as an incursion; this is
+//  intended, since the crossing needs an operator's eye.
+//************************************************************
+
+import java.util.*;
+
+/**
+ * Detects drones straying from their planned GeoEdge route or entering
+ * the aerodrome.
+ */
+public final class RouteDeviationDetector implements TelemetryRingBuffer.FixHandler {
+
+    // Upper bound on grid cells along either axis
+    private static final int MAX_GRID_SIZE = 512;
+
+    /** Kinds of deviation a fix can raise. */
+    public enum Deviation {
+        OFF_ROUTE,
+        AERODROME_INCURSION
+    }
+
+    /**
+     * Receives deviation events on the detector's thread.
+     */
+    public interface DeviationListener {
+        /**
+         * Called once per deviation found in a fix.
+         *
+         * @param deviation Kind of deviation.
+         * @param droneId ID of the deviating drone.
+         * @param timeMillis Time of the fix in milliseconds.
+         * @param latitude Latitude of the fix in degrees.
+         * @param longitude Longitude of the fix in degrees.
+         * @param distanceMeters Distance to the nearest planned segment,
+         *                       or infinity if none is nearby.
+         */
+        void onDeviation(Deviation deviation, int droneId, long timeMillis,
+                         double latitude, double longitude, double distanceMeters);
+    }
+
+    private final ZoneClassifier zones;
+    private final DeviationListener listener;
+    private final double toleranceMeters;
+    private final int partition;
+    private final int partitions;
+
+    // Local projection origin and longitude scale
+    private final double originLat;
+    private final double originLon;
+    private final double lonScale;
+    // Segment endpoints in meters
+    private final double[] ax;
+    private final double[] ay;
+    private final double[] bx;
+    private final double[] by;
+    // Segment grid in compressed form
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellFirst;
+    private final int[] cellSegments;
+
+    /**
+     * Constructs a detector for the whole fleet.
+     *
+     * @param route Planned GeoEdges, e.g. from DronePathfinder.planRouteEdges().
+     * @param zones Classifier holding the aerodrome polygons.
+     * @param toleranceMeters Largest allowed distance from the route.
+     * @param listener Receiver of deviation events.
+     */
+    public RouteDeviationDetector(List<GeoEdge> route, ZoneClassifier zones, double toleranceMeters,
+                                  DeviationListener listener) {
+        this(route, zones, toleranceMeters, listener, 0, 1);
+    }
+
+    /**
+     * Constructs a detector that only checks drones with
+     * droneId % partitions == partition.
+     *
+     * @param route Planned GeoEdges, e.g. from DronePathfinder.planRouteEdges().
+     * @param zones Classifier holding the aerodrome polygons.
+     * @param toleranceMeters Largest allowed distance from the route.
+     * @param listener Receiver of deviation events.
+     * @param partition Partition checked by this detector.
+     * @param partitions Total number of partitions.
+     */
+    public RouteDeviationDetector(List<GeoEdge> route, ZoneClassifier zones, double toleranceMeters,
+                                  DeviationListener listener, int partition, int partitions) {
+        if (route.isEmpty()) {
+            throw new IllegalArgumentException("Route has no segments to follow.");
+        }
+        this.zones = zones;
+        this.listener = listener;
+        this.toleranceMeters = toleranceMeters;
+        this.partition = partition;
+        this.partitions = partitions;
+
+        int n = route.size();
+        double sumLat = 0;
+        double minLon = Double.MAX_VALUE;
+        double minLat = Double.MAX_VALUE;
+        for (GeoEdge edge : route) {
+            sumLat += edge.getFrom().getLatitude();
+            minLat = Math.min(minLat, Math.min(edge.getFrom().getLatitude(), edge.getTarget().getLatitude()));
+            minLon = Math.min(minLon, Math.min(edge.getFrom().getLongitude(), edge.getTarget().getLongitude()));
+        }
+        this.originLat = minLat;
+        this.originLon = minLon;
+        this.lonScale = Math.cos(Math.toRadians(sumLat / n));
+
+        ax = new double[n];
+        ay = new double[n];
+        bx = new double[n];
+        by = new double[n];
+        double maxX = 0;
+        double maxY = 0;
+        for (int s = 0; s < n; s++) {
+            GeoEdge edge = route.get(s);
+            ax[s] = projectX(edge.getFrom().getLongitude());
+            ay[s] = projectY(edge.getFrom().getLatitude());
+            bx[s] = projectX(edge.getTarget().getLongitude());
+            by[s] = projectY(edge.getTarget().getLatitude());
+            maxX = Math.max(maxX, Math.max(ax[s], bx[s]));
+            maxY = Math.max(maxY, Math.max(ay[s], by[s]));
+        }
+
+        // Grid over the route plus a tolerance margin on every side
+        double extent = Math.max(maxX, maxY) + 2 * toleranceMeters;
+        this.cellSize = Math.max(toleranceMeters, extent / MAX_GRID_SIZE);
+        this.columns = (int) Math.ceil((maxX + 2 * toleranceMeters) / cellSize) + 1;
+        this.rows = (int) Math.ceil((maxY + 2 * toleranceMeters) / cellSize) + 1;
+
+        // Two passes over the same cells: count, then fill the compressed
+        // arrays, so the grid is built without per-cell lists
+        int cellCount = columns * rows;
+        cellFirst = new int[cellCount + 1];
+        for (int s = 0; s < n; s++) {
+            rasterize(s, null);
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellFirst[c + 1] += cellFirst[c];
+        }
+        cellSegments = new int[cellFirst[cellCount]];
+        int[] next = Arrays.copyOf(cellFirst, cellCount);
+        for (int s = 0; s < n; s++) {
+            rasterize(s, next);
+        }
+    }
+
+    /**
+     * Checks a fix and reports any deviation to the listener.
+     */
+    @Override
+    public void onFix(int droneId, long timeMillis, double latitude, double longitude, double altitude) {
+        if (droneId % partitions != partition) {
+            return;
+        }
+        double distance = distanceToRoute(latitude, longitude);
+        if (distance > toleranceMeters) {
+            listener.onDeviation(Deviation.OFF_ROUTE, droneId, timeMillis, latitude, longitude, distance);
+        }
+        if (zones.contains(ZoneType.AERODROME, latitude, longitude)) {
+            listener.onDeviation(Deviation.AERODROME_INCURSION, droneId, timeMillis, latitude, longitude, distance);
+        }
+    }
+
+    /**
+     * Returns the distance from a point to the nearest planned segment in
+     * its grid cell.
+     *
+     * @param latitude Latitude in degrees.
+     * @param longitude Longitude in degrees.
+     * @return Distance in meters, or infinity if no segment is within the
+     *         tolerance of the point's cell.
+     */
+    public double distanceToRoute(double latitude, double longitude) {
+        double px = projectX(longitude);
+        double py = projectY(latitude);
+        if (px < -toleranceMeters || py < -toleranceMeters) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int c = (int) ((px + toleranceMeters) / cellSize);
+        int r = (int) ((py + toleranceMeters) / cellSize);
+        if (c >= columns || r >= rows) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double best = Double.POSITIVE_INFINITY;
+        int cell = r * columns + c;
+        for (int k = cellFirst[cell]; k < cellFirst[cell + 1]; k++) {
+            best = Math.min(best, segmentDistanceSquared(cellSegments[k], px, py));
+        }
+        return Math.sqrt(best);
+    }
+
+    /**
+     * Visits every cell within the tolerance of a segment, i.e. every
+     * cell the segment's capsule overlaps. The cells of the bounding box
+     * are only candidates; each is tested against the segment exactly.
+     *
+     * @param s Index of the segment.
+     * @param next Next free slot per cell to fill, or null to only count
+     *             the segment into cellFirst.
+     */
+    private void rasterize(int s, int[] next) {
+        int c0 = column(Math.min(ax[s], bx[s]) - toleranceMeters);
+        int c1 = column(Math.max(ax[s], bx[s]) + toleranceMeters);
+        int r0 = row(Math.min(ay[s], by[s]) - toleranceMeters);
+        int r1 = row(Math.max(ay[s], by[s]) + toleranceMeters);
+        double limit = toleranceMeters * toleranceMeters;
+        for (int r = r0; r <= r1; r++) {
+            double y0 = r * cellSize - toleranceMeters;
+            for (int c = c0; c <= c1; c++) {
+                double x0 = c * cellSize - toleranceMeters;
+                if (cellDistanceSquared(s, x0, y0, x0 + cellSize, y0 + cellSize) > limit) {
+                    continue;
+                }
+                int cell = r * columns + c;
+                if (next == null) {
+                    cellFirst[cell + 1]++;
+                } else {
+                    cellSegments[next[cell]++] = s;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the squared distance between a segment and a cell. If they
+     * do not intersect, the closest pair of points includes an endpoint
+     * of the segment or a corner of the cell.
+     */
+    private double cellDistanceSquared(int s, double x0, double y0, double x1, double y1) {
+        if (crossesBox(ax[s], ay[s], bx[s], by[s], x0, y0, x1, y1)) {
+            return 0;
+        }
+        double best = Math.min(boxDistanceSquared(ax[s], ay[s], x0, y0, x1, y1),
+                boxDistanceSquared(bx[s], by[s], x0, y0, x1, y1));
+        best = Math.min(best, segmentDistanceSquared(s, x0, y0));
+        best = Math.min(best, segmentDistanceSquared(s, x1, y0));
+        best = Math.min(best, segmentDistanceSquared(s, x0, y1));
+        return Math.min(best, segmentDistanceSquared(s, x1, y1));
+    }
+
+    // Clips the segment against the box (Liang-Barsky) to test for overlap
+    private static boolean crossesBox(double px, double py, double qx, double qy,
+                                      double x0, double y0, double x1, double y1) {
+        double dx = qx - px;
+        double dy = qy - py;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {px - x0, x1 - px, py - y0, y1 - py};
+        double enter = 0;
+        double exit = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else if (p[i] < 0) {
+                enter = Math.max(enter, q[i] / p[i]);
+            } else {
+                exit = Math.min(exit, q[i] / p[i]);
+            }
+        }
+        return enter <= exit;
+    }
+
+    private static double boxDistanceSquared(double px, double py, double x0, double y0, double x1, double y1) {
+        double dx = Math.max(0, Math.max(x0 - px, px - x1));
+        double dy = Math.max(0, Math.max(y0 - py, py - y1));
+        return dx * dx + dy * dy;
+    }
+
+    private double segmentDistanceSquared(int s, double px, double py) {
+        double dx = bx[s] - ax[s];
+        double dy = by[s] - ay[s];
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax[s]) * dx + (py - ay[s]) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax[s] + t * dx - px;
+        double ey = ay[s] + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    private double projectX(double longitude) {
+        return (longitude - originLon) * GeoNode.METERS_PER_DEGREE * lonScale;
+    }
+
+    private double projectY(double latitude) {
+        return (latitude - originLat) * GeoNode.METERS_PER_DEGREE;
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) ((x + toleranceMeters) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y + toleranceMeters) / cellSize)));
+    }
+}
@@ -0,0 +1,287 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  RoutePlanner.java
+//
+//  This is the headless command-line entry point of the
+//  route planner, for scheduled planning jobs and machines
+//  without a display. It loads a hotspot CSV (or generates a
+//  seeded scenario), plans a tour with DronePathfinder,
+//  PartitionedPathfinder or AsymmetricPathfinder and writes
+//  the tour as a CSV. The asymmetric mode costs legs by
+//  flight time in the wind grid given with --wind, or in
+//  calm air without one.
+//
+//  Nothing on this path touches JavaFX, so the planner runs
+//  from a classpath without it. The startup path is also
+//  kept short: no lambdas, streams, String.format or string
+//  concatenation, each of which loads and links extra
+//  classes on first use. build-cli.sh packages the planner
+//  with its AppCDS archive so that the classes it does load
+//  are mapped from the archive instead of parsed and
+//  verified on every run.
+//
+//  Input lines are "id,latitude,longitude,altitude", with
+//  '#' comments and an optional header. The output uses the
+//  same format, in visiting order, so a tour can be fed back
+//  in. It starts with a summary comment, which in the
+//  asymmetric mode includes the flight time in the wind,
+//  and unreachable hotspots are listed at the end as
+//  comments.
+//  --scenario-out also writes the loaded or generated
+//  hotspots, in input order, as a plain hotspot file.
+//
+//  Usage: java RoutePlanner
+//             [--mode greedy|partitioned|asymmetric]
+//             [--wind grid.txt] [--out tour.csv]
+//             [--scenario-out hotspots.csv] (hotspots.csv |
+//             --generate count [--seed n])
+//  Exit status: 0 if every hotspot is on the tour, 1 if
+//  some were unreachable, 2 on bad arguments or input.
+//************************************************************
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Headless command-line route planner.
+ */
+public class RoutePlanner {
+
+    // Column header written before the hotspots and skipped when loading
+    private static final String HEADER = "id,latitude,longitude,altitude";
+
+    /**
+     * Plans a tour and writes it.
+     *
+     * @param args Options and input file, see the usage at the top of this file.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the planner.
+     *
+     * @param args Options and input file.
+     * @return Exit status.
+     */
+    static int run(String[] args) {
+        String mode = "greedy";
+        Path out = null;
+        Path in = null;
+        Path windFile = null;
+        Path scenarioOut = null;
+        int generate = -1;
+        long seed = 42L;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--mode" -> mode = args[++i];
+                    case "--out" -> out = Path.of(args[++i]);
+                    case "--wind" -> windFile = Path.of(args[++i]);
+                    case "--scenario-out" -> scenarioOut = Path.of(args[++i]);
+                    case "--generate" -> generate = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    default -> in = Path.of(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            return usage();
+        }
+        if ((in == null) == (generate < 0)
+                || !(mode.equals("greedy") || mode.equals("partitioned") || mode.equals("asymmetric"))
+                || (windFile != null && !mode.equals("asymmetric"))) {
+            return usage();
+        }
+
+        List<GeoNode> hotspots;
+        try {
+            hotspots = in != null ? load(in) : generate(generate, seed);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.print("Cannot load hotspots: ");
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        if (scenarioOut != null) {
+            try (Writer writer = Files.newBufferedWriter(scenarioOut)) {
+                writeScenario(hotspots, writer);
+            } catch (IOException e) {
+                System.err.print("Cannot write scenario: ");
+                System.err.println(e.getMessage());
+                return 2;
+            }
+        }
+
+        Tour tour;
+        double flightSeconds = Double.NaN;
+        if (mode.equals("asymmetric")) {
+            WindField wind;
+            try {
+                wind = windFile != null ? WindField.load(windFile) : WindField.calm();
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.print("Cannot load wind grid: ");
+                System.err.println(e.getMessage());
+                return 2;
+            }
+            WindCostMatrix costs = new WindCostMatrix(hotspots, wind);
+            tour = AsymmetricPathfinder.planTour(costs);
+            flightSeconds = costs.tourCost(tour);
+        } else {
+            tour = mode.equals("partitioned")
+                    ? PartitionedPathfinder.planTour(hotspots)
+                    : DronePathfinder.planTour(hotspots);
+        }
+
+        try (Writer writer = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(out)) {
+            write(tour, flightSeconds, writer);
+        } catch (IOException e) {
+            System.err.print("Cannot write tour: ");
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        return tour.isComplete() ? 0 : 1;
+    }
+
+    private static int usage() {
+        System.err.println("Usage: java RoutePlanner [--mode greedy|partitioned|asymmetric] [--wind grid.txt] "
+                + "[--out tour.csv] [--scenario-out hotspots.csv] (hotspots.csv | --generate count [--seed n])");
+        return 2;
+    }
+
+    /**
+     * Reads hotspots from a CSV file in the format described at the top of
+     * this file.
+     *
+     * @param file Path of the hotspot file.
+     * @return Hotspots in file order.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    static List<GeoNode> load(Path file) throws IOException {
+        List<GeoNode> hotspots = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            int lineNumber = 0;
+            boolean headerAllowed = true;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                // The first line that is not a comment may be the header
+                boolean header = headerAllowed && isHeader(parts);
+                headerAllowed = false;
+                if (header) {
+                    continue;
+                }
+                try {
+                    if (parts.length != 4) {
+                        throw new IllegalArgumentException("Expected 4 fields.");
+                    }
+                    hotspots.add(new GeoNode(parts[0].trim(), ZoneType.HOTSPOT,
+                            Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()),
+                            Double.parseDouble(parts[3].trim())));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(new StringBuilder("Malformed hotspot on line ")
+                            .append(lineNumber).append(" of ").append(file).toString(), e);
+                }
+            }
+        }
+        if (hotspots.isEmpty()) {
+            throw new IllegalArgumentException("No hotspots found.");
+        }
+        return hotspots;
+    }
+
+    /**
+     * Determines if the fields of a line are the column header, ignoring
+     * case and surrounding spaces.
+     */
+    private static boolean isHeader(String[] parts) {
+        String[] names = HEADER.split(",");
+        if (parts.length != names.length) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!parts[i].trim().equalsIgnoreCase(names[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates a seeded scenario over the demo property, outside the
+     * aerodrome and clear of the terminal roof.
+     */
+    private static List<GeoNode> generate(int count, long seed) {
+        return ScenarioGenerator.demoHotspots(count, seed);
+    }
+
+    /**
+     * Writes a tour as a summary comment, the hotspots in visiting order
+     * and the unreachable hotspots as comments.
+     *
+     * @param tour Tour to write.
+     * @param flightSeconds Flight time of the tour in the wind, or NaN to
+     *                      leave it out of the summary.
+     * @param writer Destination.
+     * @throws IOException If writing fails.
+     */
+    static void write(Tour tour, double flightSeconds, Writer writer) throws IOException {
+        writer.write("# hotspots=");
+        writer.write(Integer.toString(tour.getHotspots().size()));
+        writer.write(" visited=");
+        writer.write(Integer.toString(tour.size()));
+        writer.write(" length_degrees=");
+        writer.write(Double.toString(tour.getCost()));
+        if (!Double.isNaN(flightSeconds)) {
+            writer.write(" flight_seconds=");
+            writer.write(Double.toString(flightSeconds));
+        }
+        writer.write('\n');
+        writer.write(HEADER);
+        writer.write('\n');
+        for (int k = 0; k < tour.size(); k++) {
+            writeNode(tour.nodeAt(k), writer);
+        }
+        for (GeoNode node : tour.getUnreachable()) {
+            writer.write("# unreachable: ");
+            writeNode(node, writer);
+        }
+    }
+
+    /**
+     * Writes hotspots in the input format, in the given order, so that a
+     * generated scenario can be planned again from the file.
+     *
+     * @param hotspots Hotspots to write.
+     * @param writer Destination.
+     * @throws IOException If writing fails.
+     */
+    static void writeScenario(List<GeoNode> hotspots, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (GeoNode node : hotspots) {
+            writeNode(node, writer);
+        }
+    }
+
+    private static void writeNode(GeoNode node, Writer writer) throws IOException {
+        writer.write(node.getId());
+        writer.write(',');
+        writer.write(Double.toString(node.getLatitude()));
+        writer.write(',');
+        writer.write(Double.toString(node.getLongitude()));
+        writer.write(',');
+        writer.write(Double.toString(node.getAltitude()));
+        writer.write('\n');
+    }
+}
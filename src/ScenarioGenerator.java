@@ -0,0 +1,491 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  ScenarioGenerator.java
+//
+//  This class generates hotspot scenarios of any size from a
+//  seed. Hotspots are placed directly inside the valid
+//  region, the sampling rectangle minus every circular
+//  no-fly zone, so no candidate is ever drawn and thrown
+//  away. This replaces the Math.random() rejection loop
+//  previously found in DroneRoutingDemo.java.
+//
+//  Sampling works by inverse transform. Sweeping west to
+//  east, the valid area up to each longitude is tabulated
+//  once per generator. A point in the unit square (u, v) is
+//  then mapped to the longitude where that area reaches u,
+//  and to the latitude a fraction v of the way through the
+//  valid (non-no-fly) part of that longitude's column. The
+//  map preserves area, so uniform (u, v) gives uniform
+//  hotspots, and the sampling modes below only differ in
+//  how (u, v) is chosen:
+//      UNIFORM          independent random points
+//      STRATIFIED       one jittered point per cell of the
+//                       largest full grid, with any points
+//                       left over placed uniformly
+//      LOW_DISCREPANCY  R2 sequence with a seeded offset,
+//                       giving evenly spread, blue-noise-
+//                       like coverage
+//
+//  Generation is split into fixed blocks whose random
+//  streams are split from the seed in block order, so the
+//  output is identical no matter how many threads produce it.
+//************************************************************
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded, rejection-free generator of hotspot coordinates within a
+ * rectangle minus circular no-fly zones.
+ */
+public final class ScenarioGenerator {
+
+    /** How points are spread over the valid region. */
+    public enum Sampling {
+        UNIFORM,
+        STRATIFIED,
+        LOW_DISCREPANCY
+    }
+
+    // Points generated per random stream; fixed so results do not depend
+    // on the number of threads
+    private static final int BLOCK_SIZE = 4096;
+    // Columns in the tabulated west-to-east area function
+    private static final int CDF_COLUMNS = 1024;
+    // Simpson sub-intervals used to integrate one column
+    private static final int SIMPSON_STEPS = 16;
+    // Plastic number constants of the R2 low-discrepancy sequence
+    private static final double R2_ALPHA_1 = 0.7548776662466927;
+    private static final double R2_ALPHA_2 = 0.5698402909980532;
+    // Sampling area and hotspot altitudes of the DroneRoutingDemo property
+    private static final double DEMO_SOUTH = 40.4880;
+    private static final double DEMO_WEST = -80.2450;
+    private static final double DEMO_NORTH = 40.4945;
+    private static final double DEMO_EAST = -80.2300;
+    private static final double DEMO_MIN_ALTITUDE = 300;
+    private static final double DEMO_MAX_ALTITUDE = 320;
+
+    private final double south;
+    private final double west;
+    private final double north;
+    private final double east;
+    private final double minAltitude;
+    private final double maxAltitude;
+    private final double[] zoneLat;
+    private final double[] zoneLon;
+    private final double[] zoneRadius;
+    // Valid area west of each column boundary
+    private final double[] cdf;
+
+    /**
+     * A circular area in which no hotspot may be placed, such as the
+     * aerodrome.
+     */
+    public static final class NoFlyCircle {
+        private final double latitude;
+        private final double longitude;
+        private final double radiusDegrees;
+
+        /**
+         * Constructs a circular no-fly zone.
+         *
+         * @param latitude Latitude of the center in degrees.
+         * @param longitude Longitude of the center in degrees.
+         * @param radiusDegrees Radius in degrees.
+         */
+        public NoFlyCircle(double latitude, double longitude, double radiusDegrees) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusDegrees = radiusDegrees;
+        }
+    }
+
+    /**
+     * Generated hotspot coordinates held in parallel primitive arrays.
+     */
+    public static final class Scenario {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] altitudes;
+
+        private Scenario(double[] latitudes, double[] longitudes, double[] altitudes) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.altitudes = altitudes;
+        }
+
+        /**
+         * Returns the number of hotspots in the scenario.
+         *
+         * @return Hotspot count.
+         */
+        public int size() { return latitudes.length; }
+
+        /**
+         * Returns the latitude of a hotspot.
+         *
+         * @param i Hotspot index.
+         * @return Latitude in degrees.
+         */
+        public double getLatitude(int i) { return latitudes[i]; }
+
+        /**
+         * Returns the longitude of a hotspot.
+         *
+         * @param i Hotspot index.
+         * @return Longitude in degrees.
+         */
+        public double getLongitude(int i) { return longitudes[i]; }
+
+        /**
+         * Returns the altitude of a hotspot.
+         *
+         * @param i Hotspot index.
+         * @return Altitude in meters.
+         */
+        public double getAltitude(int i) { return altitudes[i]; }
+
+        /**
+         * Creates HOTSPOT GeoNodes named "H1", "H2", ... for every
+         * generated hotspot.
+         *
+         * @return List of hotspot GeoNodes.
+         */
+        public List<GeoNode> toHotspotNodes() {
+            return toHotspotNodes(new ZoneClassifier());
+        }
+
+        /**
+         * Creates HOTSPOT GeoNodes named "H1", "H2", ... for every
+         * generated hotspot, raising any hotspot over a terminal of the
+         * classifier to its cleared altitude.
+         *
+         * @param zones Zones holding the terminals to clear.
+         * @return List of hotspot GeoNodes.
+         */
+        public List<GeoNode> toHotspotNodes(ZoneClassifier zones) {
+            List<GeoNode> hotspots = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                double altitude = zones.clearedAltitude(latitudes[i], longitudes[i], altitudes[i]);
+                hotspots.add(new GeoNode("H" + (i + 1), ZoneType.HOTSPOT, latitudes[i], longitudes[i], altitude));
+            }
+            return hotspots;
+        }
+    }
+
+    /**
+     * Constructs a generator for a rectangular sampling area and tabulates
+     * its valid area.
+     *
+     * @param south Southern latitude bound in degrees.
+     * @param west Western longitude bound in degrees.
+     * @param north Northern latitude bound in degrees.
+     * @param east Eastern longitude bound in degrees.
+     * @param minAltitude Lowest hotspot altitude in meters.
+     * @param maxAltitude Highest hotspot altitude in meters.
+     * @param noFlyZones Circles to exclude from the area.
+     */
+    public ScenarioGenerator(double south, double west, double north, double east,
+                             double minAltitude, double maxAltitude, List<NoFlyCircle> noFlyZones) {
+        if (south >= north || west >= east) {
+            throw new IllegalArgumentException("Sampling area must have positive width and height.");
+        }
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+        this.minAltitude = minAltitude;
+        this.maxAltitude = maxAltitude;
+        this.zoneLat = new double[noFlyZones.size()];
+        this.zoneLon = new double[noFlyZones.size()];
+        this.zoneRadius = new double[noFlyZones.size()];
+        for (int i = 0; i < noFlyZones.size(); i++) {
+            zoneLat[i] = noFlyZones.get(i).latitude;
+            zoneLon[i] = noFlyZones.get(i).longitude;
+            zoneRadius[i] = noFlyZones.get(i).radiusDegrees;
+        }
+
+        Column column = new Column(zoneLat.length);
+        this.cdf = new double[CDF_COLUMNS + 1];
+        double width = (east - west) / CDF_COLUMNS;
+        for (int k = 0; k < CDF_COLUMNS; k++) {
+            double from = west + k * width;
+            cdf[k + 1] = cdf[k] + column.integrate(from, from + width, SIMPSON_STEPS);
+        }
+        if (cdf[CDF_COLUMNS] <= 0) {
+            throw new IllegalArgumentException("No-fly zones cover the whole sampling area.");
+        }
+    }
+
+    /**
+     * Returns a generator over the DroneRoutingDemo property, excluding the
+     * aerodrome circle of DronePathfinder.
+     *
+     * @return Generator for demo and benchmark scenarios.
+     */
+    public static ScenarioGenerator demoProperty() {
+        return new ScenarioGenerator(DEMO_SOUTH, DEMO_WEST, DEMO_NORTH, DEMO_EAST,
+                DEMO_MIN_ALTITUDE, DEMO_MAX_ALTITUDE,
+                List.of(new NoFlyCircle(DronePathfinder.AERODROME_LATITUDE, DronePathfinder.AERODROME_LONGITUDE,
+                        DronePathfinder.AERODROME_RADIUS_DEGREES)));
+    }
+
+    /**
+     * Generates uniform hotspots over the demo property, raised over the
+     * terminal roof as in DroneRoutingDemo so that none is inside the
+     * building.
+     *
+     * @param count Number of hotspots.
+     * @param seed Seed for all random streams.
+     * @return List of hotspot GeoNodes.
+     */
+    public static List<GeoNode> demoHotspots(int count, long seed) {
+        ZoneClassifier zones = new ZoneClassifier();
+        zones.addTerminal();
+        return demoProperty().generate(count, seed, Sampling.UNIFORM).toHotspotNodes(zones);
+    }
+
+    /**
+     * Generates a scenario. The same count, seed and sampling mode always
+     * produce the same hotspots.
+     *
+     * @param count Number of hotspots.
+     * @param seed Seed for all random streams.
+     * @param sampling How points are spread over the valid region.
+     * @return The generated scenario.
+     */
+    public Scenario generate(int count, long seed, Sampling sampling) {
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] altitudes = new double[count];
+
+        // Split one stream per block in block order, before going parallel
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            streams[b] = root.split();
+        }
+        // Seeded offset shared by the whole low-discrepancy sequence
+        double offsetU = root.nextDouble();
+        double offsetV = root.nextDouble();
+        // Grid used by stratified sampling. Only full rows are used, so
+        // every cell holds one point and no strip is undersampled; the
+        // fewer than gridRows points left over are placed uniformly
+        int gridRows = (int) Math.sqrt(count);
+        int gridColumns = gridRows == 0 ? 0 : count / gridRows;
+        int gridCells = gridRows * gridColumns;
+
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            SplittableRandom random = streams[b];
+            Column column = new Column(zoneLat.length);
+            int end = Math.min(count, (b + 1) * BLOCK_SIZE);
+            for (int i = b * BLOCK_SIZE; i < end; i++) {
+                double u;
+                double v;
+                switch (sampling) {
+                    case STRATIFIED -> {
+                        if (i < gridCells) {
+                            u = (i % gridColumns + random.nextDouble()) / gridColumns;
+                            v = (i / gridColumns + random.nextDouble()) / gridRows;
+                        } else {
+                            u = random.nextDouble();
+                            v = random.nextDouble();
+                        }
+                    }
+                    case LOW_DISCREPANCY -> {
+                        u = fraction(offsetU + R2_ALPHA_1 * (i + 1));
+                        v = fraction(offsetV + R2_ALPHA_2 * (i + 1));
+                    }
+                    default -> {
+                        u = random.nextDouble();
+                        v = random.nextDouble();
+                    }
+                }
+                double lon = longitudeAt(u * cdf[CDF_COLUMNS], column);
+                longitudes[i] = lon;
+                latitudes[i] = column.latitudeAt(lon, v);
+                altitudes[i] = minAltitude + random.nextDouble() * (maxAltitude - minAltitude);
+            }
+        });
+        return new Scenario(latitudes, longitudes, altitudes);
+    }
+
+    /**
+     * Inverts the tabulated area function: finds the longitude at which
+     * the valid area west of it equals the target.
+     *
+     * @param target Area in square degrees, between 0 and the total area.
+     * @param column Per-thread scratch space.
+     * @return Longitude in degrees.
+     */
+    private double longitudeAt(double target, Column column) {
+        // Last column boundary whose area does not exceed the target
+        int k = Arrays.binarySearch(cdf, target);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        k = Math.max(0, Math.min(k, CDF_COLUMNS - 1));
+
+        double width = (east - west) / CDF_COLUMNS;
+        double low = west + k * width;
+        double high = low + width;
+        double remaining = target - cdf[k];
+
+        // Newton's method on the area within the column, kept inside a
+        // shrinking bracket so a zero-length column cannot derail it
+        double x = low + width * Math.min(1, remaining / Math.max(cdf[k + 1] - cdf[k], Double.MIN_VALUE));
+        double columnStart = low;
+        for (int iteration = 0; iteration < 8; iteration++) {
+            double error = column.integrate(columnStart, x, 4) - remaining;
+            if (error > 0) {
+                high = x;
+            } else {
+                low = x;
+            }
+            double slope = column.validLength(x);
+            double next = slope > 0 ? x - error / slope : (low + high) / 2;
+            if (next <= low || next >= high) {
+                next = (low + high) / 2;
+            }
+            if (Math.abs(next - x) < 1e-13) {
+                return next;
+            }
+            x = next;
+        }
+        return x;
+    }
+
+    /**
+     * Returns the fractional part of a non-negative number.
+     */
+    private static double fraction(double value) {
+        return value - Math.floor(value);
+    }
+
+    /**
+     * Scratch space for working with the valid latitude intervals of a
+     * single longitude. One instance is used per thread.
+     */
+    private final class Column {
+        private final double[] blockedLow;
+        private final double[] blockedHigh;
+        private int blocked;
+
+        Column(int zones) {
+            blockedLow = new double[zones];
+            blockedHigh = new double[zones];
+        }
+
+        /**
+         * Collects the latitude ranges blocked by no-fly zones at a
+         * longitude, clipped to the sampling area and sorted by start.
+         */
+        private void collect(double lon) {
+            blocked = 0;
+            for (int z = 0; z < zoneLat.length; z++) {
+                double dx = lon - zoneLon[z];
+                double h2 = zoneRadius[z] * zoneRadius[z] - dx * dx;
+                if (h2 <= 0) {
+                    continue;
+                }
+                double h = Math.sqrt(h2);
+                double low = Math.max(south, zoneLat[z] - h);
+                double high = Math.min(north, zoneLat[z] + h);
+                if (low >= high) {
+                    continue;
+                }
+                // Insertion sort; there are only a handful of zones
+                int i = blocked++;
+                while (i > 0 && blockedLow[i - 1] > low) {
+                    blockedLow[i] = blockedLow[i - 1];
+                    blockedHigh[i] = blockedHigh[i - 1];
+                    i--;
+                }
+                blockedLow[i] = low;
+                blockedHigh[i] = high;
+            }
+        }
+
+        /**
+         * Returns the total valid latitude length at a longitude.
+         */
+        double validLength(double lon) {
+            collect(lon);
+            double valid = north - south;
+            double covered = south;
+            for (int i = 0; i < blocked; i++) {
+                double low = Math.max(blockedLow[i], covered);
+                if (blockedHigh[i] > low) {
+                    valid -= blockedHigh[i] - low;
+                    covered = blockedHigh[i];
+                }
+            }
+            return Math.max(0, valid);
+        }
+
+        /**
+         * Integrates the valid length between two longitudes with
+         * composite Simpson's rule.
+         */
+        double integrate(double from, double to, int steps) {
+            if (to <= from) {
+                return 0;
+            }
+            double h = (to - from) / steps;
+            double sum = validLength(from) + validLength(to);
+            for (int i = 1; i < steps; i++) {
+                sum += validLength(from + i * h) * (i % 2 == 1 ? 4 : 2);
+            }
+            return sum * h / 3;
+        }
+
+        /**
+         * Maps a fraction of the valid latitude length at a longitude to
+         * the latitude at that position, skipping blocked ranges.
+         */
+        double latitudeAt(double lon, double fraction) {
+            double remaining = fraction * validLength(lon);
+            double cursor = south;
+            for (int i = 0; i < blocked; i++) {
+                if (blockedHigh[i] <= cursor) {
+                    continue;
+                }
+                double gap = Math.max(0, blockedLow[i] - cursor);
+                if (remaining < gap) {
+                    return cursor + remaining;
+                }
+                remaining -= gap;
+                cursor = blockedHigh[i];
+            }
+            return Math.min(north, cursor + remaining);
+        }
+    }
+
+    /**
+     * Generates a large scenario in every sampling mode over the property
+     * area around the aerodrome and prints throughput and a checksum that
+     * must not change between runs with the same seed.
+     *
+     * @param args Optional hotspot count and seed.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        ScenarioGenerator generator = demoProperty();
+        for (Sampling sampling : Sampling.values()) {
+            generator.generate(Math.min(count, 100_000), seed, sampling);
+            long start = System.nanoTime();
+            Scenario scenario = generator.generate(count, seed, sampling);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            double checksum = 0;
+            for (int i = 0; i < scenario.size(); i++) {
+                checksum += scenario.getLatitude(i) * 3 + scenario.getLongitude(i);
+            }
+            System.out.printf("%-15s %d hotspots in %.3fs (%.1fM/s), checksum %.6f%n",
+                    sampling, count, seconds, count / seconds / 1e6, checksum);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  ShortestPathBenchmark.java
+//
+//  This is a headless driver that measures the query latency
+//  of ContractionHierarchy.java against a plain Dijkstra
+//  search over the same GraphSnapshot. The Dijkstra baseline
+//  runs over indexed CSR arrays with LongIntMinHeap, the same
+//  data structures the hierarchy queries use, so the speedup
+//  reflects the algorithm rather than boxing and hashing. It
+//  builds a square grid of GeoNodes connected in both
+//  directions, sprinkles AERODROME cells (weight 5) and
+//  impassable TERMINAL cells (weight Integer.MAX_VALUE)
+//  across it, and then runs the same random queries through
+//  both engines. Every answer is cross-checked, so the
+//  benchmark doubles as a correctness check of the hierarchy.
+//  Preprocessing is reported with its time and the number of
+//  shortcuts it added.
+//
+//  Usage: java ShortestPathBenchmark [gridSize] [queries] [seed]
+//************************************************************
+
+import java.util.*;
+
+/**
+ * Compares contraction-hierarchy queries with plain Dijkstra on a
+ * synthetic grid graph and prints preprocessing time and per-query
+ * latency for both.
+ */
+public class ShortestPathBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional grid size, query count and random seed.
+     */
+    public static void main(String[] args) {
+        int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        GraphSnapshot snapshot = new GraphSnapshot(buildGrid(gridSize, random));
+        List<GeoNode> nodes = snapshot.getNodes();
+        Dijkstra dijkstra = new Dijkstra(snapshot);
+
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = new ContractionHierarchy(snapshot);
+        long preprocessNanos = System.nanoTime() - start;
+
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            sources[q] = random.nextInt(nodes.size());
+            targets[q] = random.nextInt(nodes.size());
+        }
+
+        // Warm up both engines before timing
+        for (int q = 0; q < Math.min(queries, 200); q++) {
+            hierarchy.distance(nodes.get(sources[q]), nodes.get(targets[q]));
+            dijkstra.distance(sources[q], targets[q]);
+        }
+
+        long[] expected = new long[queries];
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            expected[q] = dijkstra.distance(sources[q], targets[q]);
+        }
+        long dijkstraNanos = System.nanoTime() - start;
+
+        long[] actual = new long[queries];
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            actual[q] = hierarchy.distance(nodes.get(sources[q]), nodes.get(targets[q]));
+        }
+        long hierarchyNanos = System.nanoTime() - start;
+
+        int mismatches = 0;
+        int unreachable = 0;
+        for (int q = 0; q < queries; q++) {
+            if (expected[q] != actual[q]) {
+                mismatches++;
+            }
+            if (expected[q] == ContractionHierarchy.UNREACHABLE) {
+                unreachable++;
+            } else if (q < 100 && pathWeight(snapshot, hierarchy.path(nodes.get(sources[q]),
+                    nodes.get(targets[q]))) != expected[q]) {
+                // Unpacked paths must add up to the reported distance
+                mismatches++;
+            }
+        }
+
+        System.out.printf("Nodes: %d, queries: %d (%d unreachable)%n", nodes.size(), queries, unreachable);
+        System.out.printf("CH preprocessing: %.1f ms (%d shortcuts)%n",
+                preprocessNanos / 1e6, hierarchy.getShortcutCount());
+        System.out.printf("Dijkstra query:   %.2f us%n", dijkstraNanos / 1e3 / queries);
+        System.out.printf("CH query:         %.2f us%n", hierarchyNanos / 1e3 / queries);
+        System.out.printf("Mismatches:       %d%n", mismatches);
+    }
+
+    /**
+     * Plain unidirectional Dijkstra used as the reference answer. The
+     * graph is copied into CSR arrays once, and each query resets its
+     * distances lazily with a stamp, as ContractionHierarchy does.
+     */
+    private static final class Dijkstra {
+        // Arcs of node u are at first[u] .. first[u + 1] - 1
+        private final int[] first;
+        private final int[] target;
+        private final long[] weight;
+        private final long[] dist;
+        private final int[] stamps;
+        private final LongIntMinHeap queue = new LongIntMinHeap(64);
+        private int stamp;
+
+        /**
+         * Indexes a snapshot. Edges weighted Integer.MAX_VALUE are
+         * treated as impassable and left out.
+         *
+         * @param snapshot Graph to search.
+         */
+        Dijkstra(GraphSnapshot snapshot) {
+            List<GeoNode> nodes = snapshot.getNodes();
+            int n = nodes.size();
+            Map<GeoNode, Integer> indexByNode = new IdentityHashMap<>();
+            for (int i = 0; i < n; i++) {
+                indexByNode.put(nodes.get(i), i);
+            }
+            first = new int[n + 1];
+            List<int[]> arcs = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                first[i] = arcs.size();
+                for (GeoEdge edge : snapshot.getEdges(nodes.get(i))) {
+                    Integer to = indexByNode.get(edge.getTarget());
+                    if (to != null && edge.getWeight() != Integer.MAX_VALUE) {
+                        arcs.add(new int[] {to, edge.getWeight()});
+                    }
+                }
+            }
+            first[n] = arcs.size();
+            target = new int[arcs.size()];
+            weight = new long[arcs.size()];
+            for (int a = 0; a < arcs.size(); a++) {
+                target[a] = arcs.get(a)[0];
+                weight[a] = arcs.get(a)[1];
+            }
+            dist = new long[n];
+            stamps = new int[n];
+        }
+
+        /**
+         * Returns the shortest distance between two nodes.
+         *
+         * @param from Index of the starting node in the snapshot.
+         * @param to Index of the target node in the snapshot.
+         * @return Total path weight, or ContractionHierarchy.UNREACHABLE.
+         */
+        long distance(int from, int to) {
+            int current = ++stamp;
+            queue.clear();
+            stamps[from] = current;
+            dist[from] = 0;
+            queue.push(0, from);
+
+            while (!queue.isEmpty()) {
+                long d = queue.peekKey();
+                int u = queue.pop();
+                if (u == to) {
+                    return d;
+                }
+                if (d > dist[u]) {
+                    continue;
+                }
+                for (int a = first[u]; a < first[u + 1]; a++) {
+                    int x = target[a];
+                    long nd = d + weight[a];
+                    if (stamps[x] != current || nd < dist[x]) {
+                        stamps[x] = current;
+                        dist[x] = nd;
+                        queue.push(nd, x);
+                    }
+                }
+            }
+            return ContractionHierarchy.UNREACHABLE;
+        }
+    }
+
+    /**
+     * Sums the cheapest edge weight between consecutive nodes of a path.
+     *
+     * @param snapshot Graph the path belongs to.
+     * @param path Ordered GeoNodes of the path.
+     * @return Total weight, or -1 if two consecutive nodes are not connected.
+     */
+    private static long pathWeight(GraphSnapshot snapshot, List<GeoNode> path) {
+        long total = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            long best = -1;
+            for (GeoEdge edge : snapshot.getEdges(path.get(i))) {
+                if (edge.getTarget() == path.get(i + 1) && (best < 0 || edge.getWeight() < best)) {
+                    best = edge.getWeight();
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Builds a grid of GeoNodes over the property area with four-way
+     * connections in both directions.
+     *
+     * @param size Number of rows and columns.
+     * @param random Source of zone assignments.
+     * @return All grid nodes in row-major order.
+     */
+    private static List<GeoNode> buildGrid(int size, SplittableRandom random) {
+        GeoNode[][] grid = new GeoNode[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int roll = random.nextInt(100);
+                ZoneType zone = roll < 5 ? ZoneType.TERMINAL : roll < 25 ? ZoneType.AERODROME : ZoneType.HOTSPOT;
+                double lat = 40.4870 + 0.0075 * r / size;
+                double lon = -80.2460 + 0.0170 * c / size;
+                grid[r][c] = new GeoNode("G-" + r + "-" + c, zone, lat, lon, 300);
+            }
+        }
+
+        List<GeoNode> nodes = new ArrayList<>(size * size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                GeoNode node = grid[r][c];
+                if (r + 1 < size) {
+                    node.addEdge(new GeoEdge(node, grid[r + 1][c]));
+                    grid[r + 1][c].addEdge(new GeoEdge(grid[r + 1][c], node));
+                }
+                if (c + 1 < size) {
+                    node.addEdge(new GeoEdge(node, grid[r][c + 1]));
+                    grid[r][c + 1].addEdge(new GeoEdge(grid[r][c + 1], node));
+                }
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,139 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  TelemetryMonitor.java
+//
+//  This is a headless driver for the telemetry subsystem. It
+//  plans a route over a generated scenario, then plays a
+//  local simulated feed of noisy position fixes from drones
+//  flying that route into a TelemetryRingBuffer. One
+//  RouteDeviationDetector per processor thread checks its
+//  share of the fleet, and the driver prints the ingest rate
+//  and the number of deviations raised. Every few thousand
+//  fixes a drone is pushed well off the route so that the
+//  detection path is exercised as well.
+//
+//  Usage: java TelemetryMonitor [fixes] [consumers] [drones]
+//************************************************************
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a simulated telemetry feed through the ring buffer and deviation
+ * detectors and reports throughput.
+ */
+public class TelemetryMonitor {
+
+    // Simulated drone speed and time between fixes of one drone
+    private static final double SPEED_METERS_PER_SECOND = 15;
+    private static final long FIX_INTERVAL_MILLIS = 100;
+    // GPS noise amplitude and the allowed distance from the route
+    private static final double NOISE_METERS = 3;
+    private static final double TOLERANCE_METERS = 25;
+    // One in this many fixes is pushed off the route
+    private static final int DEVIATION_PERIOD = 5000;
+
+    /**
+     * Runs the simulated feed.
+     *
+     * @param args Optional fix count, consumer count and drone count.
+     * @throws InterruptedException If interrupted while waiting for consumers.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int fixes = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int drones = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        List<GeoEdge> route = DronePathfinder.planRouteEdges(ScenarioGenerator.demoHotspots(30, 42L));
+
+        ZoneClassifier zones = new ZoneClassifier();
+        zones.addAerodrome();
+
+        // Deviations are counted per kind from all detector threads
+        LongAdder[] counts = new LongAdder[RouteDeviationDetector.Deviation.values().length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        RouteDeviationDetector.DeviationListener listener =
+                (deviation, droneId, time, lat, lon, distance) -> counts[deviation.ordinal()].increment();
+
+        TelemetryRingBuffer ring = new TelemetryRingBuffer(1 << 16);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < consumers; p++) {
+            RouteDeviationDetector detector =
+                    new RouteDeviationDetector(route, zones, TOLERANCE_METERS, listener, p, consumers);
+            Thread thread = new Thread(ring.newProcessor(detector), "telemetry-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+
+        // Leg geometry of the route for the simulated feed
+        int legs = route.size();
+        double[] legLat = new double[legs + 1];
+        double[] legLon = new double[legs + 1];
+        double[] legAlt = new double[legs + 1];
+        double[] legMeters = new double[legs];
+        for (int i = 0; i < legs; i++) {
+            GeoNode from = route.get(i).getFrom();
+            legLat[i] = from.getLatitude();
+            legLon[i] = from.getLongitude();
+            legAlt[i] = from.getAltitude();
+        }
+        legLat[legs] = legLat[0];
+        legLon[legs] = legLon[0];
+        legAlt[legs] = legAlt[0];
+        double lonScale = Math.cos(Math.toRadians(legLat[0]));
+        for (int i = 0; i < legs; i++) {
+            double north = (legLat[i + 1] - legLat[i]) * GeoNode.METERS_PER_DEGREE;
+            double east = (legLon[i + 1] - legLon[i]) * GeoNode.METERS_PER_DEGREE * lonScale;
+            legMeters[i] = Math.max(1e-6, Math.sqrt(north * north + east * east));
+        }
+
+        // Drones start evenly spaced along the route
+        int[] droneLeg = new int[drones];
+        double[] droneProgress = new double[drones];
+        for (int d = 0; d < drones; d++) {
+            droneLeg[d] = d * legs / drones;
+        }
+        SplittableRandom random = new SplittableRandom(7L);
+        double stepMeters = SPEED_METERS_PER_SECOND * FIX_INTERVAL_MILLIS / 1000.0;
+        double noiseDegrees = NOISE_METERS / GeoNode.METERS_PER_DEGREE;
+        double offRouteDegrees = 10 * TOLERANCE_METERS / GeoNode.METERS_PER_DEGREE;
+
+        long start = System.nanoTime();
+        for (int k = 0; k < fixes; k++) {
+            int d = k % drones;
+            long time = (long) (k / drones) * FIX_INTERVAL_MILLIS;
+
+            // Advance the drone along its leg, moving on at the leg's end
+            droneProgress[d] += stepMeters;
+            while (droneProgress[d] >= legMeters[droneLeg[d]]) {
+                droneProgress[d] -= legMeters[droneLeg[d]];
+                droneLeg[d] = (droneLeg[d] + 1) % legs;
+            }
+            int leg = droneLeg[d];
+            double t = droneProgress[d] / legMeters[leg];
+            double lat = legLat[leg] + t * (legLat[leg + 1] - legLat[leg]);
+            double lon = legLon[leg] + t * (legLon[leg + 1] - legLon[leg]);
+            double alt = legAlt[leg] + t * (legAlt[leg + 1] - legAlt[leg]);
+
+            lat += (random.nextDouble() - 0.5) * 2 * noiseDegrees;
+            lon += (random.nextDouble() - 0.5) * 2 * noiseDegrees / lonScale;
+            if (k % DEVIATION_PERIOD == DEVIATION_PERIOD - 1) {
+                lat += offRouteDegrees;
+            }
+            ring.publish(d, time, lat, lon, alt);
+        }
+        ring.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Ingested %d fixes with %d consumers in %.3fs (%.0f fixes/s)%n",
+                fixes, consumers, seconds, fixes / seconds);
+        for (RouteDeviationDetector.Deviation deviation : RouteDeviationDetector.Deviation.values()) {
+            System.out.printf("  %-19s %d%n", deviation, counts[deviation.ordinal()].sum());
+        }
+    }
+}
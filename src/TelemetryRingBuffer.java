@@ -0,0 +1,220 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  TelemetryRingBuffer.java
+//
+//  This class is the ingest queue for drone position fixes.
+//  It is a preallocated single-producer, multi-consumer ring
+//  buffer in the style of the LMAX Disruptor: every slot is
+//  a row across parallel primitive arrays, the producer
+//  writes a fix straight into the next slot and publishes it
+//  by advancing a cursor, and each Processor walks the
+//  cursor on its own thread and hands every fix to its
+//  FixHandler. No object is created per fix, so ingest puts
+//  no pressure on the garbage collector.
+//
+//  Every processor sees every fix; work is divided by the
+//  handlers themselves (e.g. by drone ID), which keeps the
+//  consumers completely independent. The producer never
+//  overwrites a slot until the slowest processor has moved
+//  past it. Processors must be created before the first
+//  fix is published.
+//************************************************************
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer/multi-consumer ring buffer of drone
+ * position fixes.
+ */
+public final class TelemetryRingBuffer {
+
+    // Busy-spin iterations before a waiting thread starts parking
+    private static final int SPIN_LIMIT = 1000;
+
+    /**
+     * Receives fixes from a Processor, one call per fix, on the
+     * processor's thread.
+     */
+    public interface FixHandler {
+        /**
+         * Handles a single position fix.
+         *
+         * @param droneId ID of the reporting drone.
+         * @param timeMillis Time of the fix in milliseconds.
+         * @param latitude Latitude in degrees.
+         * @param longitude Longitude in degrees.
+         * @param altitude Altitude in meters.
+         */
+        void onFix(int droneId, long timeMillis, double latitude, double longitude, double altitude);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] droneIds;
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] altitudes;
+
+    // Sequence of the last published fix
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private volatile boolean closed;
+    private final List<Processor> processors = new ArrayList<>();
+
+    // Producer-only state
+    private AtomicLong[] gates;
+    private long nextSequence;
+    private long cachedGate = -1;
+
+    /**
+     * Consumes every published fix in order on its own thread.
+     */
+    public final class Processor implements Runnable {
+        private final FixHandler handler;
+        // Sequence of the last fix this processor has finished with
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private Processor(FixHandler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Processes fixes until the buffer is closed and drained.
+         */
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (true) {
+                long available = cursor.getAcquire();
+                if (available >= next) {
+                    // Handle the whole published batch before releasing it
+                    for (long s = next; s <= available; s++) {
+                        int i = (int) s & mask;
+                        handler.onFix(droneIds[i], times[i], latitudes[i], longitudes[i], altitudes[i]);
+                    }
+                    sequence.setRelease(available);
+                    next = available + 1;
+                    idle = 0;
+                } else if (closed && cursor.getAcquire() < next) {
+                    return;
+                } else {
+                    idle = backOff(idle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructs a ring buffer.
+     *
+     * @param capacity Number of slots; must be a power of two.
+     */
+    public TelemetryRingBuffer(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two.");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.droneIds = new int[capacity];
+        this.times = new long[capacity];
+        this.latitudes = new double[capacity];
+        this.longitudes = new double[capacity];
+        this.altitudes = new double[capacity];
+    }
+
+    /**
+     * Creates a processor that will feed every fix to a handler. The
+     * caller runs it on a thread of its choosing.
+     *
+     * @param handler Handler for the processor's fixes.
+     * @return The new processor.
+     */
+    public synchronized Processor newProcessor(FixHandler handler) {
+        if (gates != null) {
+            throw new IllegalStateException("Processors must be created before the first publish.");
+        }
+        Processor processor = new Processor(handler);
+        processors.add(processor);
+        return processor;
+    }
+
+    /**
+     * Writes a fix into the next slot and publishes it, waiting for the
+     * slowest processor if the buffer is full. Must only be called from
+     * the single producer thread.
+     *
+     * @param droneId ID of the reporting drone.
+     * @param timeMillis Time of the fix in milliseconds.
+     * @param latitude Latitude in degrees.
+     * @param longitude Longitude in degrees.
+     * @param altitude Altitude in meters.
+     */
+    public void publish(int droneId, long timeMillis, double latitude, double longitude, double altitude) {
+        if (gates == null) {
+            synchronized (this) {
+                gates = new AtomicLong[processors.size()];
+                for (int p = 0; p < gates.length; p++) {
+                    gates[p] = processors.get(p).sequence;
+                }
+            }
+        }
+
+        long sequence = nextSequence++;
+        long wrapPoint = sequence - capacity;
+        if (wrapPoint > cachedGate) {
+            int idle = 0;
+            while (wrapPoint > (cachedGate = slowestGate(sequence - 1))) {
+                idle = backOff(idle);
+            }
+        }
+
+        int i = (int) sequence & mask;
+        droneIds[i] = droneId;
+        times[i] = timeMillis;
+        latitudes[i] = latitude;
+        longitudes[i] = longitude;
+        altitudes[i] = altitude;
+        cursor.setRelease(sequence);
+    }
+
+    /**
+     * Signals that no more fixes will be published. Processors finish
+     * the fixes already published and then return.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Returns the lowest sequence any processor has finished with.
+     *
+     * @param fallback Value returned when there are no processors.
+     * @return The slowest processor's sequence.
+     */
+    private long slowestGate(long fallback) {
+        long min = fallback;
+        for (AtomicLong gate : gates) {
+            min = Math.min(min, gate.getAcquire());
+        }
+        return min;
+    }
+
+    /**
+     * Waits a little, spinning first and parking once the wait gets long.
+     *
+     * @param idle Number of consecutive waits so far.
+     * @return The updated wait count.
+     */
+    private static int backOff(int idle) {
+        if (idle < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(1000);
+        }
+        return idle + 1;
+    }
+}
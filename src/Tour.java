@@ -0,0 +1,173 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  Tour.java
+//
+//  This is the immutable result type of the route planners.
+//  A Tour holds the hotspots it was planned over and a
+//  visiting order stored as an int[] permutation of indices
+//  into that list, together with the cycle's total length
+//  and the hotspots the planner could not reach. Planners
+//  search over plain arrays and build a single Tour at the
+//  end, so no GeoEdge is allocated while planning and no
+//  GeoNode is ever modified. The same nodes can therefore be
+//  planned over repeatedly or from several threads at once.
+//
+//  GeoEdges are only materialized on request, either as a
+//  list with toEdges() or as a new GraphSnapshot version for
+//  GraphVisualization with applyTo().
+//************************************************************
+
+import java.util.*;
+
+/**
+ * Immutable route over a list of hotspots, stored as a permutation of
+ * hotspot indices.
+ */
+public final class Tour {
+    private final List<GeoNode> hotspots;
+    // Hotspot indices in visiting order, starting at the start node
+    private final int[] order;
+    // Hotspot indices missing from the order, ascending
+    private final int[] unreachable;
+    private final double cost;
+
+    /**
+     * Constructs a tour. The order array is owned by the tour afterwards
+     * and must not be changed by the caller.
+     *
+     * @param hotspots Hotspots the tour was planned over.
+     * @param order Distinct hotspot indices in visiting order.
+     */
+    Tour(List<GeoNode> hotspots, int[] order) {
+        this.hotspots = List.copyOf(hotspots);
+        this.order = order;
+
+        boolean[] visited = new boolean[this.hotspots.size()];
+        for (int index : order) {
+            if (visited[index]) {
+                throw new IllegalArgumentException("Hotspot " + index + " is visited twice.");
+            }
+            visited[index] = true;
+        }
+        this.unreachable = new int[visited.length - order.length];
+        for (int i = 0, k = 0; i < visited.length; i++) {
+            if (!visited[i]) {
+                unreachable[k++] = i;
+            }
+        }
+
+        // Length of the closed cycle, including the edge back to the start
+        double length = 0;
+        for (int k = 0; k < order.length && order.length > 1; k++) {
+            GeoNode from = this.hotspots.get(order[k]);
+            GeoNode to = this.hotspots.get(order[(k + 1) % order.length]);
+            length += DronePathfinder.calculateDistance(from.getLatitude(), from.getLongitude(),
+                    to.getLatitude(), to.getLongitude());
+        }
+        this.cost = length;
+    }
+
+    /**
+     * Returns the number of hotspots on the tour.
+     *
+     * @return Number of visited hotspots.
+     */
+    public int size() { return order.length; }
+
+    /**
+     * Returns the index, within the planned hotspot list, of the hotspot
+     * at a position of the tour.
+     *
+     * @param position Position in visiting order, 0 being the start node.
+     * @return Hotspot index.
+     */
+    public int indexAt(int position) { return order[position]; }
+
+    /**
+     * Returns the hotspot at a position of the tour.
+     *
+     * @param position Position in visiting order, 0 being the start node.
+     * @return The GeoNode visited at that position.
+     */
+    public GeoNode nodeAt(int position) { return hotspots.get(order[position]); }
+
+    /**
+     * Returns a copy of the visiting order as hotspot indices.
+     *
+     * @return Hotspot indices in visiting order.
+     */
+    public int[] toArray() { return order.clone(); }
+
+    /**
+     * Returns the hotspots the tour was planned over.
+     *
+     * @return Unmodifiable list of hotspots.
+     */
+    public List<GeoNode> getHotspots() { return hotspots; }
+
+    /**
+     * Returns the length of the closed cycle, including the edge back to
+     * the start node.
+     *
+     * @return Length in degrees, as measured by DronePathfinder.
+     */
+    public double getCost() { return cost; }
+
+    /**
+     * Returns the hotspots the planner could not reach.
+     *
+     * @return Unreachable hotspots in planned list order.
+     */
+    public List<GeoNode> getUnreachable() {
+        List<GeoNode> nodes = new ArrayList<>(unreachable.length);
+        for (int index : unreachable) {
+            nodes.add(hotspots.get(index));
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns true if every planned hotspot is on the tour.
+     *
+     * @return True if nothing was unreachable.
+     */
+    public boolean isComplete() { return unreachable.length == 0; }
+
+    /**
+     * Returns the hotspots in visiting order.
+     *
+     * @return GeoNodes in visiting order, without repeating the start node.
+     */
+    public List<GeoNode> visitingOrder() {
+        List<GeoNode> nodes = new ArrayList<>(order.length);
+        for (int index : order) {
+            nodes.add(hotspots.get(index));
+        }
+        return nodes;
+    }
+
+    /**
+     * Materializes the tour as GeoEdges.
+     *
+     * @return GeoEdges in visiting order, ending with the edge back to the
+     *         start node; empty if the tour has fewer than two hotspots.
+     */
+    public List<GeoEdge> toEdges() {
+        List<GeoEdge> edges = new ArrayList<>(order.length);
+        for (int k = 0; k < order.length && order.length > 1; k++) {
+            edges.add(new GeoEdge(hotspots.get(order[k]), hotspots.get(order[(k + 1) % order.length])));
+        }
+        return edges;
+    }
+
+    /**
+     * Returns a new version of a snapshot whose hotspot edges are this
+     * tour's, ready for GraphVisualization.
+     *
+     * @param snapshot Snapshot holding the tour's hotspots.
+     * @return The derived snapshot.
+     */
+    public GraphSnapshot applyTo(GraphSnapshot snapshot) {
+        return snapshot.withoutEdgesFrom(ZoneType.HOTSPOT).withAddedEdges(toEdges());
+    }
+}
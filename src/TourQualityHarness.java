@@ -0,0 +1,357 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  TourQualityHarness.java
+//
+//  This is a headless regression harness for the route
+//  solvers. It loads problem instances from local files,
+//  runs every registered solver mode on each of them, and
+//  writes one CSV row per run with the tour length, the gap
+//  to the best-known length, the wall time, the peak heap
+//  use and the number of hotspots the solver could not
+//  reach. The solvers are deterministic, so each mode runs
+//  once per instance. Rows are always written in the same
+//  order, so two reports from different versions can be
+//  compared with a plain diff (the time and memory columns
+//  naturally vary between runs).
+//
+//  Two input formats are understood:
+//      *.tsp  TSPLIB instances with a NODE_COORD_SECTION and
+//             EDGE_WEIGHT_TYPE EUC_2D, CEIL_2D, ATT or GEO;
+//             lengths use the TSPLIB rounding rules, so they
+//             are directly comparable to published optima;
+//             no obstacles apply to them
+//      *.csv  recorded hotspot sets in the RoutePlanner input
+//             format; legs must clear the aerodrome and the
+//             terminal, and lengths are ground distances in
+//             meters
+//
+//  Best-known lengths are read from an optional file of
+//  "name : length" lines, the format of the TSPLIB solutions
+//  file, where name is the file name without its extension.
+//
+//  Usage: java TourQualityHarness --out report.csv
+//             [--best-known solutions.txt] instance files...
+//************************************************************
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Measures solution quality and cost of every solver mode on TSPLIB
+ * instances and recorded hotspot sets.
+ */
+public class TourQualityHarness {
+
+    /**
+     * A route solver under test. Returns the hotspots in visiting order;
+     * the tour closes back to the first hotspot, and hotspots missing from
+     * the order count as unreachable. Every leg except the closing one
+     * must clear the given obstacles. The projection tells solvers that
+     * work in meters how the instance's coordinates map to them.
+     */
+    interface Solver {
+        List<GeoNode> solve(List<GeoNode> hotspots, ObstacleField obstacles, WindCostMatrix.Projection projection);
+    }
+
+    /**
+     * Distance rule of an instance between two of its points.
+     */
+    private interface Metric {
+        double distance(int i, int j);
+    }
+
+    /**
+     * A loaded problem: its hotspots, the obstacles legs must clear, how
+     * its coordinates map to meters and how to measure a tour over them.
+     */
+    private static final class Instance {
+        final String name;
+        final List<GeoNode> hotspots;
+        final ObstacleField obstacles;
+        final WindCostMatrix.Projection projection;
+        final Metric metric;
+
+        Instance(String name, List<GeoNode> hotspots, ObstacleField obstacles,
+                 WindCostMatrix.Projection projection, Metric metric) {
+            this.name = name;
+            this.hotspots = hotspots;
+            this.obstacles = obstacles;
+            this.projection = projection;
+            this.metric = metric;
+        }
+    }
+
+    /**
+     * Returns every solver mode, in report order.
+     *
+     * @return Solvers keyed by mode name.
+     */
+    static Map<String, Solver> solvers() {
+        Map<String, Solver> solvers = new LinkedHashMap<>();
+        solvers.put("greedy", (hotspots, obstacles, projection) ->
+                DronePathfinder.planTour(hotspots, obstacles).visitingOrder());
+        solvers.put("partitioned", (hotspots, obstacles, projection) ->
+                PartitionedPathfinder.planTour(hotspots, obstacles).visitingOrder());
+        // In calm air the asymmetric solver sees symmetric flight times, so
+        // its tours are comparable to the other modes
+        solvers.put("asymmetric", (hotspots, obstacles, projection) -> AsymmetricPathfinder.planTour(
+                new WindCostMatrix(hotspots, obstacles, WindCostMatrix.DEFAULT_AIRSPEED, WindField.calm(),
+                        projection)).visitingOrder());
+        // In a fixed sheared wind its tours trade length for flight time,
+        // which shows up as a longer tour than in calm air
+        solvers.put("asymmetric-wind", (hotspots, obstacles, projection) -> AsymmetricPathfinder.planTour(
+                new WindCostMatrix(hotspots, obstacles, WindCostMatrix.DEFAULT_AIRSPEED, shearedWind(hotspots),
+                        projection)).visitingOrder());
+        return solvers;
+    }
+
+    /**
+     * Fixed wind grid over the hotspots' extent: 9 m/s at the south edge,
+     * strengthening by half to the north edge, and turning from a
+     * westerly at the west edge to a south-westerly at the east edge.
+     */
+    private static WindField shearedWind(List<GeoNode> hotspots) {
+        double south = Double.MAX_VALUE;
+        double west = Double.MAX_VALUE;
+        double north = -Double.MAX_VALUE;
+        double east = -Double.MAX_VALUE;
+        for (GeoNode hotspot : hotspots) {
+            south = Math.min(south, hotspot.getLatitude());
+            west = Math.min(west, hotspot.getLongitude());
+            north = Math.max(north, hotspot.getLatitude());
+            east = Math.max(east, hotspot.getLongitude());
+        }
+        int rows = 4;
+        int columns = 4;
+        double[] eastward = new double[rows * columns];
+        double[] northward = new double[rows * columns];
+        for (int r = 0; r < rows; r++) {
+            double speed = 9 * (1 + 0.5 * r / (rows - 1));
+            for (int c = 0; c < columns; c++) {
+                double veer = Math.toRadians(45.0 * c / (columns - 1));
+                eastward[r * columns + c] = speed * Math.cos(veer);
+                northward[r * columns + c] = speed * Math.sin(veer);
+            }
+        }
+        // A grid needs a positive extent even for a single hotspot
+        return new WindField(south, west, Math.max(north, south + 1e-6), Math.max(east, west + 1e-6),
+                rows, columns, eastward, northward);
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args Options and instance files, see the usage at the top of this file.
+     * @throws IOException If an input or output file cannot be accessed.
+     */
+    public static void main(String[] args) throws IOException {
+        Path out = null;
+        Path bestKnownFile = null;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> out = Path.of(args[++i]);
+                case "--best-known" -> bestKnownFile = Path.of(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+        // The report goes to a file since solvers log progress to the console
+        if (files.isEmpty() || out == null) {
+            System.err.println("Usage: java TourQualityHarness --out report.csv "
+                    + "[--best-known solutions.txt] instance files...");
+            return;
+        }
+        Map<String, Double> bestKnown = bestKnownFile == null ? Map.of() : loadBestKnown(bestKnownFile);
+        files.sort(Comparator.comparing(Path::toString));
+
+        try (PrintStream report = new PrintStream(Files.newOutputStream(out))) {
+            report.println("instance,mode,nodes,tour_length,best_known,gap_percent,unreachable,wall_ms,peak_heap_mb");
+            for (Path file : files) {
+                Instance instance;
+                try {
+                    instance = load(file);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Skipping " + file + ": " + e.getMessage());
+                    continue;
+                }
+                for (Map.Entry<String, Solver> solver : solvers().entrySet()) {
+                    report.println(run(instance, solver.getKey(), solver.getValue(), bestKnown.get(instance.name)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one solver on one instance and formats the report row.
+     */
+    private static String run(Instance instance, String mode, Solver solver, Double best) {
+        Map<GeoNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < instance.hotspots.size(); i++) {
+            index.put(instance.hotspots.get(i), i);
+        }
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long start = System.nanoTime();
+        List<GeoNode> order = solver.solve(instance.hotspots, instance.obstacles, instance.projection);
+        double wallMillis = (System.nanoTime() - start) / 1e6;
+        long peakBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakBytes += pool.getPeakUsage().getUsed();
+        }
+
+        double length = 0;
+        for (int i = 0; i < order.size() && order.size() > 1; i++) {
+            length += instance.metric.distance(index.get(order.get(i)),
+                    index.get(order.get((i + 1) % order.size())));
+        }
+        int unreachable = instance.hotspots.size() - new HashSet<>(order).size();
+
+        String bestText = best == null ? "" : format(best);
+        String gapText = best == null || unreachable > 0 ? ""
+                : String.format(Locale.ROOT, "%.3f", (length / best - 1) * 100);
+        return String.join(",", instance.name, mode, Integer.toString(instance.hotspots.size()),
+                format(length), bestText, gapText, Integer.toString(unreachable),
+                String.format(Locale.ROOT, "%.1f", wallMillis),
+                String.format(Locale.ROOT, "%.1f", peakBytes / 1048576.0));
+    }
+
+    /**
+     * Loads an instance from a TSPLIB or hotspot CSV file.
+     */
+    private static Instance load(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String name = dot < 0 ? fileName : fileName.substring(0, dot);
+        if (fileName.endsWith(".tsp")) {
+            return loadTsplib(name, Files.readAllLines(file));
+        } else if (fileName.endsWith(".csv")) {
+            return loadHotspots(name, RoutePlanner.load(file));
+        }
+        throw new IllegalArgumentException("Unknown instance format.");
+    }
+
+    /**
+     * Parses a TSPLIB instance with node coordinates.
+     */
+    private static Instance loadTsplib(String name, List<String> lines) {
+        String weightType = "EUC_2D";
+        List<double[]> points = new ArrayList<>();
+        boolean inCoordinates = false;
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (inCoordinates) {
+                if (line.equals("EOF") || !Character.isDigit(line.charAt(0))) {
+                    break;
+                }
+                String[] parts = line.split("\\s+");
+                points.add(new double[]{Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+            } else if (line.startsWith("NODE_COORD_SECTION")) {
+                inCoordinates = true;
+            } else if (line.startsWith("EDGE_WEIGHT_TYPE")) {
+                weightType = line.substring(line.indexOf(':') + 1).trim();
+            } else if (line.startsWith("TYPE")
+                    && !line.substring(line.indexOf(':') + 1).trim().equals("TSP")) {
+                throw new IllegalArgumentException("Only symmetric TSP instances are supported.");
+            }
+        }
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("No NODE_COORD_SECTION found.");
+        }
+
+        double[] x = new double[points.size()];
+        double[] y = new double[points.size()];
+        List<GeoNode> hotspots = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            x[i] = points.get(i)[0];
+            y[i] = points.get(i)[1];
+            hotspots.add(new GeoNode(Integer.toString(i + 1), ZoneType.HOTSPOT, y[i], x[i], 0));
+        }
+
+        Metric metric = switch (weightType) {
+            case "EUC_2D" -> (i, j) -> Math.floor(Math.hypot(x[i] - x[j], y[i] - y[j]) + 0.5);
+            case "CEIL_2D" -> (i, j) -> Math.ceil(Math.hypot(x[i] - x[j], y[i] - y[j]));
+            case "ATT" -> (i, j) -> {
+                double r = Math.sqrt(((x[i] - x[j]) * (x[i] - x[j]) + (y[i] - y[j]) * (y[i] - y[j])) / 10.0);
+                double t = Math.floor(r + 0.5);
+                return t < r ? t + 1 : t;
+            };
+            case "GEO" -> (i, j) -> geoDistance(x[i], y[i], x[j], y[j]);
+            default -> throw new IllegalArgumentException("Unsupported EDGE_WEIGHT_TYPE " + weightType + ".");
+        };
+        // TSPLIB coordinates are not positions around the airport
+        return new Instance(name, hotspots, new ObstacleField(), WindCostMatrix.Projection.PLANAR, metric);
+    }
+
+    /**
+     * TSPLIB GEO distance: coordinates are DDD.MM degrees and minutes,
+     * and the result is rounded down to whole kilometers.
+     */
+    private static double geoDistance(double lat1, double lon1, double lat2, double lon2) {
+        double rrr = 6378.388;
+        double q1 = Math.cos(geoRadians(lon1) - geoRadians(lon2));
+        double q2 = Math.cos(geoRadians(lat1) - geoRadians(lat2));
+        double q3 = Math.cos(geoRadians(lat1) + geoRadians(lat2));
+        return Math.floor(rrr * Math.acos(0.5 * ((1 + q1) * q2 - (1 - q1) * q3)) + 1);
+    }
+
+    private static double geoRadians(double coordinate) {
+        double degrees = (int) coordinate;
+        double minutes = coordinate - degrees;
+        return 3.141592 * (degrees + 5.0 * minutes / 3.0) / 180.0;
+    }
+
+    /**
+     * Measures a recorded hotspot set, loaded by RoutePlanner.load().
+     */
+    private static Instance loadHotspots(String name, List<GeoNode> hotspots) {
+        Metric metric = (i, j) -> {
+            GeoNode a = hotspots.get(i);
+            GeoNode b = hotspots.get(j);
+            double north = (b.getLatitude() - a.getLatitude()) * GeoNode.METERS_PER_DEGREE;
+            double east = (b.getLongitude() - a.getLongitude()) * GeoNode.METERS_PER_DEGREE
+                    * Math.cos(Math.toRadians((a.getLatitude() + b.getLatitude()) / 2));
+            return Math.sqrt(north * north + east * east);
+        };
+        return new Instance(name, hotspots, DronePathfinder.DEFAULT_OBSTACLES, WindCostMatrix.Projection.GEOGRAPHIC,
+                metric);
+    }
+
+    /**
+     * Reads "name : length" lines.
+     */
+    private static Map<String, Double> loadBestKnown(Path file) throws IOException {
+        Map<String, Double> bestKnown = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                try {
+                    bestKnown.put(line.substring(0, colon).trim(),
+                            Double.parseDouble(line.substring(colon + 1).trim().split("\\s+")[0]));
+                } catch (NumberFormatException e) {
+                    // Not a solution line
+                }
+            }
+        }
+        return bestKnown;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,68 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  VersionedGraph.java
+//
+//  This class is the multi-version store for the routing
+//  graph. Readers call current() to pin a GraphSnapshot and
+//  plan against it for as long as they like without taking
+//  any lock. Writers call publish() with a function that
+//  derives a new snapshot from the current one; the new
+//  version is installed with a compare-and-set, and the
+//  function is simply re-run against the newer version if
+//  another writer got there first.
+//
+//  Because snapshots are immutable, nothing has to be
+//  tracked to retire old versions: once the last planner
+//  drops its reference, the garbage collector reclaims it.
+//  The function passed to publish() may run more than once
+//  and must therefore be free of side effects.
+//************************************************************
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lock-free holder of the latest GraphSnapshot. Any number of threads
+ * may read and publish concurrently.
+ */
+public final class VersionedGraph {
+    private final AtomicReference<GraphSnapshot> head;
+
+    /**
+     * Constructs a versioned graph whose first version contains the given
+     * nodes and a frozen copy of their current edges.
+     *
+     * @param nodes Master list of all GeoNodes in the graph.
+     */
+    public VersionedGraph(List<GeoNode> nodes) {
+        this.head = new AtomicReference<>(new GraphSnapshot(nodes));
+    }
+
+    /**
+     * Returns the latest published snapshot. The caller may keep using it
+     * after newer versions are published.
+     *
+     * @return The current GraphSnapshot.
+     */
+    public GraphSnapshot current() {
+        return head.get();
+    }
+
+    /**
+     * Publishes a new version derived from the latest snapshot. If another
+     * writer publishes first, the change is re-applied to that version.
+     *
+     * @param change Side-effect-free function deriving the new snapshot.
+     * @return The snapshot that was published.
+     */
+    public GraphSnapshot publish(UnaryOperator<GraphSnapshot> change) {
+        while (true) {
+            GraphSnapshot base = head.get();
+            GraphSnapshot next = change.apply(base);
+            if (head.compareAndSet(base, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  WindCostMatrix.java
+//
+//  This class holds the asymmetric cost of flying between
+//  every ordered pair of hotspots in a wind field. The cost
+//  of a leg is its flight time in seconds at a constant
+//  airspeed, which is proportional to the energy used. Along
+//  the leg, the drone crabs into the wind to hold its track,
+//  so its ground speed is the tailwind component plus
+//  sqrt(airspeed^2 - crosswind^2). A leg into a headwind
+//  therefore costs more than the same leg flown back with the
+//  wind, and a leg with a crosswind at or above the airspeed
+//  cannot be flown at all. The wind is sampled by bilinear
+//  interpolation at points spaced about half a grid cell
+//  apart along each leg.
+//
+//  Costs are stored in one dense n x n float array, and the
+//  rows are computed in parallel. A leg and its reverse pass
+//  the same sample points, so the wind is interpolated once
+//  for both. Obstacle clearance does not depend on the wind,
+//  so it is checked once when the matrix is built. When a
+//  new wind grid arrives, recost() only re-integrates the
+//  flight times.
+//
+//  The caller says how positions map to meters. Geographic
+//  coordinates are projected around the hotspots' mean
+//  latitude; planar ones, such as TSPLIB instances, use
+//  equal scales on both axes.
+//************************************************************
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Dense matrix of wind-dependent flight times between hotspots.
+ */
+public final class WindCostMatrix {
+
+    // Airspeed used when none is given, in m/s
+    public static final double DEFAULT_AIRSPEED = 15;
+    // Most wind samples taken along one leg
+    private static final int MAX_SAMPLES = 64;
+    // Most hotspots whose n x n matrix still fits in one array
+    public static final int MAX_HOTSPOTS = 46340;
+
+    /**
+     * How hotspot coordinates map to meters.
+     */
+    public enum Projection {
+        /** Latitude and longitude in degrees, scaled around the mean latitude. */
+        GEOGRAPHIC,
+        /** A plane with equal scales on both axes, one degree per unit. */
+        PLANAR
+    }
+
+    private final List<GeoNode> hotspots;
+    private final double airspeed;
+    private final int n;
+    private final double[] lat;
+    private final double[] lon;
+    // Meters per degree of longitude in the projection
+    private final double metersPerLongitude;
+    // True where the leg i -> j hits an obstacle, at i * n + j
+    private final boolean[] blocked;
+    // Flight time in seconds of the leg i -> j, at i * n + j
+    private final float[] cost;
+
+    /**
+     * Builds the matrix with the default airspeed, checking legs against
+     * DronePathfinder's default obstacles.
+     *
+     * @param hotspots Hotspots in matrix order.
+     * @param wind Wind field to cost the legs in.
+     */
+    public WindCostMatrix(List<GeoNode> hotspots, WindField wind) {
+        this(hotspots, DronePathfinder.DEFAULT_OBSTACLES, DEFAULT_AIRSPEED, wind);
+    }
+
+    /**
+     * Builds the matrix over geographic coordinates.
+     *
+     * @param hotspots Hotspots in matrix order.
+     * @param obstacles Obstacles a leg must clear.
+     * @param airspeed Airspeed of the drone in m/s.
+     * @param wind Wind field to cost the legs in.
+     * @throws IllegalArgumentException If the airspeed is not positive or
+     *                                  there are more than MAX_HOTSPOTS
+     *                                  hotspots.
+     */
+    public WindCostMatrix(List<GeoNode> hotspots, ObstacleField obstacles, double airspeed, WindField wind) {
+        this(hotspots, obstacles, airspeed, wind, Projection.GEOGRAPHIC);
+    }
+
+    /**
+     * Builds the matrix.
+     *
+     * @param hotspots Hotspots in matrix order.
+     * @param obstacles Obstacles a leg must clear.
+     * @param airspeed Airspeed of the drone in m/s.
+     * @param wind Wind field to cost the legs in.
+     * @param projection How the hotspots' coordinates map to meters.
+     * @throws IllegalArgumentException If the airspeed is not positive or
+     *                                  there are more than MAX_HOTSPOTS
+     *                                  hotspots.
+     */
+    public WindCostMatrix(List<GeoNode> hotspots, ObstacleField obstacles, double airspeed, WindField wind,
+                          Projection projection) {
+        if (airspeed <= 0) {
+            throw new IllegalArgumentException("Airspeed must be positive.");
+        }
+        if (hotspots.size() > MAX_HOTSPOTS) {
+            throw new IllegalArgumentException("At most " + MAX_HOTSPOTS + " hotspots fit in a cost matrix.");
+        }
+        this.hotspots = List.copyOf(hotspots);
+        this.airspeed = airspeed;
+        this.n = hotspots.size();
+        this.lat = new double[n];
+        this.lon = new double[n];
+        double[] alt = new double[n];
+        double sumLat = 0;
+        for (int i = 0; i < n; i++) {
+            lat[i] = hotspots.get(i).getLatitude();
+            lon[i] = hotspots.get(i).getLongitude();
+            alt[i] = hotspots.get(i).getAltitude();
+            sumLat += lat[i];
+        }
+        double meanLat = n == 0 ? 0 : sumLat / n;
+        this.metersPerLongitude = projection == Projection.GEOGRAPHIC
+                ? GeoNode.METERS_PER_DEGREE * Math.cos(Math.toRadians(meanLat))
+                : GeoNode.METERS_PER_DEGREE;
+
+        // Obstacle clearance does not depend on the wind or the direction
+        // of flight, so it is checked once per pair
+        this.blocked = new boolean[n * n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                boolean hit = !obstacles.isClear(lat[i], lon[i], alt[i], lat[j], lon[j], alt[j]);
+                blocked[i * n + j] = hit;
+                blocked[j * n + i] = hit;
+            }
+        });
+        this.cost = new float[n * n];
+        recost(wind);
+    }
+
+    /**
+     * Recomputes every leg's flight time in a new wind field. The matrix
+     * must not be read by other threads while this runs.
+     *
+     * @param wind The new wind field.
+     */
+    public void recost(WindField wind) {
+        // Sample about twice per grid cell along each leg
+        double spacing = Math.min(wind.rowSpacing() * GeoNode.METERS_PER_DEGREE,
+                wind.columnSpacing() * metersPerLongitude) / 2;
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double[] sample = new double[2];
+            for (int j = i + 1; j < n; j++) {
+                flightTimes(wind, spacing, i, j, sample);
+            }
+        });
+    }
+
+    /**
+     * Integrates the flight times of the legs i -> j and j -> i through
+     * the wind. Both directions pass the same sample points, so the wind
+     * is interpolated once for the pair; only the sign of the tailwind
+     * differs. A leg the wind makes unflyable costs infinity.
+     *
+     * @param sample Scratch space for one wind vector.
+     */
+    private void flightTimes(WindField wind, double spacing, int i, int j, double[] sample) {
+        double eastMeters = (lon[j] - lon[i]) * metersPerLongitude;
+        double northMeters = (lat[j] - lat[i]) * GeoNode.METERS_PER_DEGREE;
+        double length = Math.sqrt(eastMeters * eastMeters + northMeters * northMeters);
+        if (length == 0) {
+            cost[i * n + j] = 0;
+            cost[j * n + i] = 0;
+            return;
+        }
+        double trackEast = eastMeters / length;
+        double trackNorth = northMeters / length;
+        int samples = (int) Math.max(1, Math.min(MAX_SAMPLES, Math.ceil(length / spacing)));
+
+        // Midpoint rule over equal pieces of the leg
+        double forward = 0;
+        double backward = 0;
+        double piece = length / samples;
+        for (int s = 0; s < samples; s++) {
+            double t = (s + 0.5) / samples;
+            wind.windAt(lat[i] + t * (lat[j] - lat[i]), lon[i] + t * (lon[j] - lon[i]), sample);
+            double tailwind = sample[0] * trackEast + sample[1] * trackNorth;
+            double crosswind = sample[0] * trackNorth - sample[1] * trackEast;
+            double remaining = airspeed * airspeed - crosswind * crosswind;
+            if (remaining <= 0) {
+                forward = Double.POSITIVE_INFINITY;
+                backward = Double.POSITIVE_INFINITY;
+                break;
+            }
+            double airComponent = Math.sqrt(remaining);
+            forward += airComponent + tailwind > 0 ? piece / (airComponent + tailwind) : Double.POSITIVE_INFINITY;
+            backward += airComponent - tailwind > 0 ? piece / (airComponent - tailwind) : Double.POSITIVE_INFINITY;
+        }
+        cost[i * n + j] = (float) forward;
+        cost[j * n + i] = (float) backward;
+    }
+
+    /**
+     * Returns the hotspots in matrix order.
+     *
+     * @return Unmodifiable list of hotspots.
+     */
+    public List<GeoNode> getHotspots() { return hotspots; }
+
+    /**
+     * Returns the number of hotspots.
+     *
+     * @return Matrix dimension.
+     */
+    public int size() { return n; }
+
+    /**
+     * Returns the flight time of the leg from one hotspot to another.
+     *
+     * @param from Index of the start hotspot.
+     * @param to Index of the end hotspot.
+     * @return Seconds, or infinity if the wind makes the leg unflyable.
+     */
+    public double cost(int from, int to) { return cost[from * n + to]; }
+
+    /**
+     * Returns true if the straight leg between two hotspots hits an
+     * obstacle.
+     *
+     * @param from Index of the start hotspot.
+     * @param to Index of the end hotspot.
+     * @return True if the leg is blocked.
+     */
+    public boolean isBlocked(int from, int to) { return blocked[from * n + to]; }
+
+    /**
+     * Returns the latitude of a hotspot.
+     *
+     * @param i Hotspot index.
+     * @return Latitude in degrees.
+     */
+    double latitude(int i) { return lat[i]; }
+
+    /**
+     * Returns the longitude of a hotspot.
+     *
+     * @param i Hotspot index.
+     * @return Longitude in degrees.
+     */
+    double longitude(int i) { return lon[i]; }
+
+    /**
+     * Returns the total flight time of a closed tour over this matrix's
+     * hotspots, including the leg back to the start.
+     *
+     * @param tour A tour planned over getHotspots().
+     * @return Seconds, or infinity if any leg is unflyable.
+     */
+    public double tourCost(Tour tour) {
+        double total = 0;
+        for (int k = 0; k < tour.size() && tour.size() > 1; k++) {
+            total += cost(tour.indexAt(k), tour.indexAt((k + 1) % tour.size()));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,221 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  WindField.java
+//
+//  This class is a gridded wind field over the airport, as
+//  delivered by a local forecast or survey. Each grid point
+//  holds the eastward (u) and northward (v) wind speed in
+//  meters per second, and the wind anywhere in between is
+//  found by bilinear interpolation of the four surrounding
+//  grid points. Outside the grid, the nearest edge value is
+//  used.
+//
+//  Wind grids are loaded from a text file. The first data
+//  line gives the grid extent and size:
+//      south,west,north,east,rows,columns
+//  and each following line is one row of grid points from
+//  south to north, each row listing its points from west to
+//  east:
+//      u,v; u,v; u,v; ...
+//  Lines starting with '#' are comments.
+//
+//  A field is immutable, so a new grid is published by
+//  loading a new WindField and re-costing with it
+//  (see WindCostMatrix.java).
+//************************************************************
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Immutable grid of wind vectors with bilinear interpolation.
+ */
+public final class WindField {
+    private final double south;
+    private final double west;
+    private final double north;
+    private final double east;
+    private final int rows;
+    private final int columns;
+    // Wind components per grid point, row-major from the south-west corner
+    private final double[] eastward;
+    private final double[] northward;
+
+    /**
+     * Constructs a wind field.
+     *
+     * @param south Latitude of the first grid row in degrees.
+     * @param west Longitude of the first grid column in degrees.
+     * @param north Latitude of the last grid row in degrees, north of
+     *              south if there is more than one row.
+     * @param east Longitude of the last grid column in degrees, east of
+     *             west if there is more than one column.
+     * @param rows Number of grid rows, at least 1.
+     * @param columns Number of grid columns, at least 1.
+     * @param eastward Eastward wind in m/s per grid point, row-major from
+     *                 the south-west corner.
+     * @param northward Northward wind in m/s per grid point, in the same
+     *                  order.
+     */
+    public WindField(double south, double west, double north, double east, int rows, int columns,
+                     double[] eastward, double[] northward) {
+        if (rows < 1 || columns < 1 || eastward.length != rows * columns || northward.length != rows * columns) {
+            throw new IllegalArgumentException("Wind components must fill a grid of at least one point.");
+        }
+        if ((rows > 1 && !(north > south)) || (columns > 1 && !(east > west))) {
+            throw new IllegalArgumentException("Wind grid must run from south to north and from west to east.");
+        }
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+        this.rows = rows;
+        this.columns = columns;
+        this.eastward = eastward.clone();
+        this.northward = northward.clone();
+    }
+
+    /**
+     * Returns a field with no wind anywhere.
+     *
+     * @return A calm wind field.
+     */
+    public static WindField calm() {
+        return new WindField(0, 0, 0, 0, 1, 1, new double[1], new double[1]);
+    }
+
+    /**
+     * Loads a wind field from a text file in the format described at the
+     * top of this file.
+     *
+     * @param file Path of the wind grid file.
+     * @return The loaded field.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If the file is malformed.
+     */
+    public static WindField load(Path file) throws IOException {
+        double[] extent = null;
+        int rows = 0;
+        int columns = 0;
+        double[] eastward = null;
+        double[] northward = null;
+        int row = 0;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (extent == null) {
+                    String[] header = line.split(",");
+                    extent = new double[4];
+                    for (int i = 0; i < 4; i++) {
+                        extent[i] = Double.parseDouble(header[i].trim());
+                    }
+                    rows = Integer.parseInt(header[4].trim());
+                    columns = Integer.parseInt(header[5].trim());
+                    eastward = new double[rows * columns];
+                    northward = new double[rows * columns];
+                    continue;
+                }
+                String[] points = line.split(";");
+                if (row >= rows || points.length != columns) {
+                    throw new IllegalArgumentException("Expected " + rows + " rows of " + columns + " points.");
+                }
+                for (int c = 0; c < columns; c++) {
+                    String[] wind = points[c].split(",");
+                    eastward[row * columns + c] = Double.parseDouble(wind[0].trim());
+                    northward[row * columns + c] = Double.parseDouble(wind[1].trim());
+                }
+                row++;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed wind grid on line " + lineNumber + " of " + file, e);
+            }
+        }
+        if (extent == null || row != rows) {
+            throw new IllegalArgumentException("Wind grid " + file + " is incomplete.");
+        }
+        return new WindField(extent[0], extent[1], extent[2], extent[3], rows, columns, eastward, northward);
+    }
+
+    /**
+     * Returns the interpolated eastward wind at a point.
+     *
+     * @param lat Latitude in degrees.
+     * @param lon Longitude in degrees.
+     * @return Eastward wind speed in m/s.
+     */
+    public double eastwardAt(double lat, double lon) {
+        double[] wind = new double[2];
+        windAt(lat, lon, wind);
+        return wind[0];
+    }
+
+    /**
+     * Returns the interpolated northward wind at a point.
+     *
+     * @param lat Latitude in degrees.
+     * @param lon Longitude in degrees.
+     * @return Northward wind speed in m/s.
+     */
+    public double northwardAt(double lat, double lon) {
+        double[] wind = new double[2];
+        windAt(lat, lon, wind);
+        return wind[1];
+    }
+
+    /**
+     * Interpolates both wind components at a point, sharing the grid
+     * lookup between them.
+     *
+     * @param lat Latitude in degrees.
+     * @param lon Longitude in degrees.
+     * @param wind Receives the eastward wind at [0] and the northward wind
+     *             at [1], in m/s.
+     */
+    void windAt(double lat, double lon, double[] wind) {
+        double r = rows > 1 ? (lat - south) / (north - south) * (rows - 1) : 0;
+        double c = columns > 1 ? (lon - west) / (east - west) * (columns - 1) : 0;
+        r = Math.max(0, Math.min(rows - 1, r));
+        c = Math.max(0, Math.min(columns - 1, c));
+        int r0 = Math.min((int) r, Math.max(0, rows - 2));
+        int c0 = Math.min((int) c, Math.max(0, columns - 2));
+        int r1 = Math.min(r0 + 1, rows - 1);
+        int c1 = Math.min(c0 + 1, columns - 1);
+        double fr = r - r0;
+        double fc = c - c0;
+        // Weights of the four surrounding grid points
+        double w00 = (1 - fr) * (1 - fc);
+        double w01 = (1 - fr) * fc;
+        double w10 = fr * (1 - fc);
+        double w11 = fr * fc;
+        int p00 = r0 * columns + c0;
+        int p01 = r0 * columns + c1;
+        int p10 = r1 * columns + c0;
+        int p11 = r1 * columns + c1;
+        wind[0] = eastward[p00] * w00 + eastward[p01] * w01 + eastward[p10] * w10 + eastward[p11] * w11;
+        wind[1] = northward[p00] * w00 + northward[p01] * w01 + northward[p10] * w10 + northward[p11] * w11;
+    }
+
+    /**
+     * Returns the grid spacing along latitude.
+     *
+     * @return Degrees between grid rows, or infinity for a single row.
+     */
+    public double rowSpacing() {
+        return rows > 1 ? (north - south) / (rows - 1) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the grid spacing along longitude.
+     *
+     * @return Degrees between grid columns, or infinity for a single column.
+     */
+    public double columnSpacing() {
+        return columns > 1 ? (east - west) / (columns - 1) : Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,410 @@
+//************************************************************
+//  Authors: Garrett Reihner, Kaitlyn Cavanaugh
+//  ZoneClassifier.java
+//
+//  This class decides which zones a coordinate lies in, for
+//  any number of arbitrary (non-self-intersecting) polygons
+//  per ZoneType. It replaces hand-written bounding-box checks
+//  such as the old isWithinTerminal() in DroneRoutingDemo,
+//  which only understood one U-shaped terminal, so L-shaped
+//  and irregular terminals can be described by their
+//  outline instead of by code.
+//
+//  Every polygon is covered by a uniform grid built once when
+//  the polygon is added. Cells that no polygon edge touches
+//  are marked wholly inside or wholly outside, so most points
+//  are answered with a single array lookup. Points in cells on
+//  the outline fall back to an even-odd ray cast that only
+//  tests the edges overlapping that cell's grid row.
+//
+//  Polygons can be added from GeoNode rings (as drawn in
+//  buildGraph()) or loaded from a text file with one polygon
+//  per line:
+//      ZONE height; lat,lon; lat,lon; lat,lon; ...
+//  where ZONE is a ZoneType name, height is the structure's
+//  roof altitude in meters, and lines starting with '#' are
+//  comments.
+//
+//  The terminal clearance rule lives here too: a point over
+//  a TERMINAL polygon must fly at least 10m above that
+//  polygon's roof. A classifier must be fully built before
+//  it is shared; after that, any number of threads may
+//  query it, and classify() splits large batches across
+//  all cores.
+//************************************************************
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Grid-accelerated point-in-polygon classifier for zones of arbitrary
+ * shape.
+ */
+public final class ZoneClassifier {
+
+    // Minimum altitude above a terminal roof in meters
+    private static final double TERMINAL_CLEARANCE_METERS = 10;
+    // Points classified per parallel task
+    private static final int BATCH_BLOCK_SIZE = 16384;
+
+    private final List<Polygon> polygons = new ArrayList<>();
+
+    /**
+     * A single zone polygon with its acceleration grid.
+     */
+    private static final class Polygon {
+        private static final byte OUTSIDE = 0;
+        private static final byte INSIDE = 1;
+        private static final byte BOUNDARY = 2;
+
+        final ZoneType zone;
+        final double height;
+        final double[] lat;
+        final double[] lon;
+        final double south;
+        final double north;
+        final double west;
+        final double east;
+        final int columns;
+        final int rows;
+        final double cellHeight;
+        final double cellWidth;
+        // State of each cell, row-major
+        final byte[] cells;
+        // Edges overlapping each row, in compressed form; edge i runs
+        // from vertex i to vertex i + 1
+        final int[] rowFirst;
+        final int[] rowEdges;
+
+        Polygon(ZoneType zone, double[] lat, double[] lon, double height) {
+            if (lat.length != lon.length || lat.length < 3) {
+                throw new IllegalArgumentException("A polygon needs at least three vertices.");
+            }
+            this.zone = zone;
+            this.height = height;
+            this.lat = lat.clone();
+            this.lon = lon.clone();
+            int n = lat.length;
+
+            double s = Double.MAX_VALUE, nn = -Double.MAX_VALUE, w = Double.MAX_VALUE, e = -Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                s = Math.min(s, lat[i]);
+                nn = Math.max(nn, lat[i]);
+                w = Math.min(w, lon[i]);
+                e = Math.max(e, lon[i]);
+            }
+            this.south = s;
+            this.north = nn;
+            this.west = w;
+            this.east = e;
+
+            // About two cells per edge along each axis, within sane bounds
+            int size = Math.max(4, Math.min(256, (int) Math.ceil(Math.sqrt(n)) * 2));
+            this.columns = size;
+            this.rows = size;
+            this.cellHeight = (north - south) / rows;
+            this.cellWidth = (east - west) / columns;
+
+            // Mark every cell an edge's bounding box touches as boundary,
+            // and record the edge in each row it spans
+            this.cells = new byte[rows * columns];
+            List<List<Integer>> perRow = new ArrayList<>(rows);
+            for (int r = 0; r < rows; r++) {
+                perRow.add(new ArrayList<>());
+            }
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                int r0 = row(Math.min(lat[i], lat[j]));
+                int r1 = row(Math.max(lat[i], lat[j]));
+                int c0 = column(Math.min(lon[i], lon[j]));
+                int c1 = column(Math.max(lon[i], lon[j]));
+                for (int r = r0; r <= r1; r++) {
+                    perRow.get(r).add(i);
+                    for (int c = c0; c <= c1; c++) {
+                        cells[r * columns + c] = BOUNDARY;
+                    }
+                }
+            }
+            this.rowFirst = new int[rows + 1];
+            for (int r = 0; r < rows; r++) {
+                rowFirst[r + 1] = rowFirst[r] + perRow.get(r).size();
+            }
+            this.rowEdges = new int[rowFirst[rows]];
+            for (int r = 0; r < rows; r++) {
+                for (int k = 0; k < perRow.get(r).size(); k++) {
+                    rowEdges[rowFirst[r] + k] = perRow.get(r).get(k);
+                }
+            }
+
+            // Cells untouched by any edge are wholly inside or outside;
+            // their center decides which
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    if (cells[r * columns + c] != BOUNDARY) {
+                        double centerLat = south + (r + 0.5) * cellHeight;
+                        double centerLon = west + (c + 0.5) * cellWidth;
+                        cells[r * columns + c] = rayCast(centerLat, centerLon, r) ? INSIDE : OUTSIDE;
+                    }
+                }
+            }
+        }
+
+        boolean contains(double pointLat, double pointLon) {
+            if (pointLat < south || pointLat > north || pointLon < west || pointLon > east) {
+                return false;
+            }
+            int r = row(pointLat);
+            byte state = cells[r * columns + column(pointLon)];
+            if (state != BOUNDARY) {
+                return state == INSIDE;
+            }
+            return rayCast(pointLat, pointLon, r);
+        }
+
+        /**
+         * Even-odd test with a ray cast east from the point, using only the
+         * edges that overlap the point's grid row.
+         */
+        private boolean rayCast(double pointLat, double pointLon, int r) {
+            boolean inside = false;
+            int n = lat.length;
+            for (int k = rowFirst[r]; k < rowFirst[r + 1]; k++) {
+                int i = rowEdges[k];
+                int j = (i + 1) % n;
+                // Half-open latitude test so a vertex on the ray counts once
+                if ((lat[i] > pointLat) != (lat[j] > pointLat)) {
+                    double crossLon = lon[i] + (pointLat - lat[i]) / (lat[j] - lat[i]) * (lon[j] - lon[i]);
+                    if (pointLon < crossLon) {
+                        inside = !inside;
+                    }
+                }
+            }
+            return inside;
+        }
+
+        private int row(double pointLat) {
+            return Math.min(rows - 1, Math.max(0, (int) ((pointLat - south) / cellHeight)));
+        }
+
+        private int column(double pointLon) {
+            return Math.min(columns - 1, Math.max(0, (int) ((pointLon - west) / cellWidth)));
+        }
+    }
+
+    /**
+     * Adds a polygon given as vertex coordinates. The ring is closed
+     * implicitly; the last vertex should not repeat the first.
+     *
+     * @param zone Zone the polygon belongs to.
+     * @param lats Vertex latitudes in degrees.
+     * @param lons Vertex longitudes in degrees.
+     * @param height Roof altitude of the structure in meters.
+     */
+    public void addPolygon(ZoneType zone, double[] lats, double[] lons, double height) {
+        polygons.add(new Polygon(zone, lats, lons, height));
+    }
+
+    /**
+     * Adds a polygon outlined by GeoNodes in ring order, such as the
+     * terminal or aerodrome outline nodes of buildGraph(). The highest node
+     * altitude is used as the roof altitude.
+     *
+     * @param zone Zone the polygon belongs to.
+     * @param ring GeoNodes along the outline.
+     */
+    public void addPolygon(ZoneType zone, List<GeoNode> ring) {
+        double[] lats = new double[ring.size()];
+        double[] lons = new double[ring.size()];
+        double height = -Double.MAX_VALUE;
+        for (int i = 0; i < ring.size(); i++) {
+            lats[i] = ring.get(i).getLatitude();
+            lons[i] = ring.get(i).getLongitude();
+            height = Math.max(height, ring.get(i).getAltitude());
+        }
+        addPolygon(zone, lats, lons, height);
+    }
+
+    /**
+     * Loads zone polygons from a text file in the format described at the
+     * top of this file.
+     *
+     * @param file Path of the zone file.
+     * @return A classifier containing every polygon in the file.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    public static ZoneClassifier load(Path file) throws IOException {
+        ZoneClassifier classifier = new ZoneClassifier();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] parts = line.split(";");
+                String[] header = parts[0].trim().split("\\s+");
+                ZoneType zone = ZoneType.valueOf(header[0]);
+                double height = Double.parseDouble(header[1]);
+                double[] lats = new double[parts.length - 1];
+                double[] lons = new double[parts.length - 1];
+                for (int i = 1; i < parts.length; i++) {
+                    String[] coordinate = parts[i].trim().split(",");
+                    lats[i - 1] = Double.parseDouble(coordinate[0].trim());
+                    lons[i - 1] = Double.parseDouble(coordinate[1].trim());
+                }
+                classifier.addPolygon(zone, lats, lons, height);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed zone on line " + lineNumber + " of " + file, e);
+            }
+        }
+        return classifier;
+    }
+
+    /**
+     * Checks if a coordinate lies within any polygon of a zone.
+     *
+     * @param zone Zone to check.
+     * @param lat Latitude of the point to check.
+     * @param lon Longitude of the point to check.
+     * @return True if the point is within the zone, false otherwise.
+     */
+    public boolean contains(ZoneType zone, double lat, double lon) {
+        for (Polygon polygon : polygons) {
+            if (polygon.zone == zone && polygon.contains(lat, lon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns every zone a coordinate lies in as a bit mask, with bit
+     * (1 << zone.ordinal()) set for each zone.
+     *
+     * @param lat Latitude of the point to check.
+     * @param lon Longitude of the point to check.
+     * @return Bit mask of containing zones.
+     */
+    public int zoneMask(double lat, double lon) {
+        int mask = 0;
+        for (Polygon polygon : polygons) {
+            int bit = 1 << polygon.zone.ordinal();
+            if ((mask & bit) == 0 && polygon.contains(lat, lon)) {
+                mask |= bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Classifies a batch of coordinates in parallel.
+     *
+     * @param lats Latitudes of the points.
+     * @param lons Longitudes of the points.
+     * @return Zone bit mask of each point, as returned by zoneMask().
+     */
+    public int[] classify(double[] lats, double[] lons) {
+        int[] masks = new int[lats.length];
+        int blocks = (lats.length + BATCH_BLOCK_SIZE - 1) / BATCH_BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int end = Math.min(lats.length, (b + 1) * BATCH_BLOCK_SIZE);
+            for (int i = b * BATCH_BLOCK_SIZE; i < end; i++) {
+                masks[i] = zoneMask(lats[i], lons[i]);
+            }
+        });
+        return masks;
+    }
+
+    /**
+     * Applies the terminal clearance rule: over a terminal, the altitude is
+     * raised to at least the roof altitude plus 10m minimum clearance.
+     *
+     * @param lat Latitude of the point.
+     * @param lon Longitude of the point.
+     * @param altitude Requested altitude in meters.
+     * @return The altitude, raised if needed to clear any terminal below.
+     */
+    public double clearedAltitude(double lat, double lon, double altitude) {
+        double cleared = altitude;
+        for (Polygon polygon : polygons) {
+            if (polygon.zone == ZoneType.TERMINAL && polygon.contains(lat, lon)) {
+                cleared = Math.max(cleared, polygon.height + TERMINAL_CLEARANCE_METERS);
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Adds the terminal outline used by DronePathfinder as a TERMINAL
+     * polygon at the height of its roof.
+     */
+    public void addTerminal() {
+        addPolygon(ZoneType.TERMINAL, DronePathfinder.TERMINAL_LATITUDES, DronePathfinder.TERMINAL_LONGITUDES,
+                DronePathfinder.TERMINAL_ROOF_METERS);
+    }
+
+    /**
+     * Adds the aerodrome outline used by DronePathfinder as an AERODROME
+     * polygon with a corner every 360 / 24 degrees around its circle.
+     */
+    public void addAerodrome() {
+        int points = DronePathfinder.AERODROME_OUTLINE_POINTS;
+        double[] lats = new double[points];
+        double[] lons = new double[points];
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            lats[i] = DronePathfinder.AERODROME_LATITUDE + DronePathfinder.AERODROME_RADIUS_DEGREES * Math.sin(angle);
+            lons[i] = DronePathfinder.AERODROME_LONGITUDE + DronePathfinder.AERODROME_RADIUS_DEGREES * Math.cos(angle);
+        }
+        addPolygon(ZoneType.AERODROME, lats, lons, DronePathfinder.GROUND_ELEVATION_METERS);
+    }
+
+    /**
+     * Classifies a large batch of random points over the property area
+     * against a U-shaped terminal, an aerodrome outline and the property
+     * line, and prints the throughput.
+     *
+     * @param args Optional point count.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        ZoneClassifier classifier = new ZoneClassifier();
+        classifier.addTerminal();
+        classifier.addAerodrome();
+        classifier.addPolygon(ZoneType.PROPERTY_LINE,
+                new double[]{40.4945, 40.4945, 40.4870, 40.4870},
+                new double[]{-80.2460, -80.2290, -80.2290, -80.2460}, 285);
+
+        SplittableRandom random = new SplittableRandom(42L);
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = 40.4860 + random.nextDouble() * 0.0095;
+            lons[i] = -80.2470 + random.nextDouble() * 0.0190;
+        }
+
+        classifier.classify(lats, lons);
+        long start = System.nanoTime();
+        int[] masks = classifier.classify(lats, lons);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int[] counts = new int[ZoneType.values().length];
+        for (int mask : masks) {
+            for (ZoneType zone : ZoneType.values()) {
+                if ((mask & (1 << zone.ordinal())) != 0) {
+                    counts[zone.ordinal()]++;
+                }
+            }
+        }
+        System.out.printf("Classified %d points in %.3fs (%.1fM points/s)%n", count, seconds, count / seconds / 1e6);
+        for (ZoneType zone : ZoneType.values()) {
+            System.out.printf("  %-13s %d%n", zone, counts[zone.ordinal()]);
+        }
+    }
+}